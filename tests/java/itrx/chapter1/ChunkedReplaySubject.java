@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action1;
+import rx.subjects.Subject;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A ReplaySubject that stores its history in fixed-size array chunks
+ * instead of a node per item. Every subscriber replays the history through
+ * its own cursor into the chunks. Trimming by size or age only moves the
+ * start of the history forward and drops a chunk once it is left behind.
+ * Expired chunks are skipped whole by their last timestamp, and the start
+ * within the last of them is found with a binary search.
+ *
+ * @param <T> The type of the values
+ */
+public final class ChunkedReplaySubject<T> extends Subject<T, T> {
+
+	public static final int DEFAULT_CHUNK_SIZE = 64;
+
+	private final Buffer<T> buffer;
+
+	public static <T> ChunkedReplaySubject<T> create() {
+		return create(new Buffer<T>(DEFAULT_CHUNK_SIZE, Long.MAX_VALUE, 0, null));
+	}
+
+	public static <T> ChunkedReplaySubject<T> createWithSize(int size) {
+		return createWithSize(size, DEFAULT_CHUNK_SIZE);
+	}
+
+	public static <T> ChunkedReplaySubject<T> createWithSize(int size, int chunkSize) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size > 0 required but it was " + size);
+		}
+		return create(new Buffer<T>(chunkSize, size, 0, null));
+	}
+
+	public static <T> ChunkedReplaySubject<T> createWithTime(long time, TimeUnit unit, Scheduler scheduler) {
+		return createWithTime(time, unit, scheduler, DEFAULT_CHUNK_SIZE);
+	}
+
+	public static <T> ChunkedReplaySubject<T> createWithTime(long time, TimeUnit unit, Scheduler scheduler, int chunkSize) {
+		return create(new Buffer<T>(chunkSize, Long.MAX_VALUE, unit.toMillis(time), scheduler));
+	}
+
+	private static <T> ChunkedReplaySubject<T> create(Buffer<T> buffer) {
+		return new ChunkedReplaySubject<>(buffer);
+	}
+
+	private ChunkedReplaySubject(Buffer<T> buffer) {
+		super(child -> {
+			Cursor<T> cursor = buffer.cursor(child);
+			if (buffer.subscribers.add(cursor)) {
+				child.add(Subscriptions.create(() -> buffer.subscribers.remove(cursor)));
+			}
+			buffer.drain(cursor);
+		});
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void onNext(T t) {
+		if (!buffer.done) {
+			buffer.add(t);
+			buffer.subscribers.forEach(buffer.drainAction);
+		}
+	}
+
+	@Override
+	public void onError(Throwable e) {
+		if (!buffer.done) {
+			buffer.error = e;
+			buffer.done = true;
+			buffer.subscribers.terminate(buffer.drainAction);
+		}
+	}
+
+	@Override
+	public void onCompleted() {
+		if (!buffer.done) {
+			buffer.done = true;
+			buffer.subscribers.terminate(buffer.drainAction);
+		}
+	}
+
+	@Override
+	public boolean hasObservers() {
+		return buffer.subscribers.size() > 0;
+	}
+
+	/**
+	 * @return The number of values that a subscriber would receive if it subscribed now
+	 */
+	public int size() {
+		return buffer.size();
+	}
+
+	private static final class Chunk {
+		final Object[] values;
+		final long[] timestamps;
+		Chunk next;
+
+		Chunk(int size, boolean timed) {
+			values = new Object[size];
+			timestamps = timed ? new long[size] : null;
+		}
+	}
+
+	private static final class Cursor<T> extends AtomicInteger {
+		private static final long serialVersionUID = 1L;
+
+		final Subscriber<? super T> child;
+		Chunk chunk;
+		int offset;
+		long index;
+
+		Cursor(Subscriber<? super T> child, Chunk chunk, int offset, long index) {
+			this.child = child;
+			this.chunk = chunk;
+			this.offset = offset;
+			this.index = index;
+		}
+	}
+
+	private static final class Buffer<T> {
+		final SubscriberArray<Cursor<T>> subscribers = new SubscriberArray<>();
+		final Action1<Cursor<T>> drainAction = this::drain;
+		final int chunkSize;
+		final long maxSize;
+		final long maxAgeMillis;
+		final Scheduler scheduler;
+
+		// The start of the history. Guarded by this.
+		Chunk head;
+		int headOffset;
+		long headIndex;
+		long lastTimestamp = Long.MIN_VALUE;
+
+		// Only touched by the producer
+		Chunk tail;
+		int tailOffset;
+
+		// Values and links are written before count, so that readers
+		// who see the new count also see everything before it.
+		volatile long count;
+		volatile boolean done;
+		volatile Throwable error;
+
+		Buffer(int chunkSize, long maxSize, long maxAgeMillis, Scheduler scheduler) {
+			if (chunkSize <= 0) {
+				throw new IllegalArgumentException("chunkSize > 0 required but it was " + chunkSize);
+			}
+			this.chunkSize = chunkSize;
+			this.maxSize = maxSize;
+			this.maxAgeMillis = maxAgeMillis;
+			this.scheduler = scheduler;
+			this.head = this.tail = new Chunk(chunkSize, scheduler != null);
+		}
+
+		synchronized void add(T value) {
+			if (tailOffset == chunkSize) {
+				Chunk c = new Chunk(chunkSize, scheduler != null);
+				tail.next = c;
+				tail = c;
+				tailOffset = 0;
+			}
+			tail.values[tailOffset] = value;
+			if (scheduler != null) {
+				// The scheduler's clock may step back, but the binary
+				// search in trim relies on timestamps that never do
+				long now = Math.max(scheduler.now(), lastTimestamp);
+				lastTimestamp = now;
+				tail.timestamps[tailOffset] = now;
+			}
+			tailOffset++;
+			count = count + 1;
+			trim();
+		}
+
+		synchronized Cursor<T> cursor(Subscriber<? super T> child) {
+			trim();
+			return new Cursor<>(child, head, headOffset, headIndex);
+		}
+
+		synchronized int size() {
+			trim();
+			return (int) (count - headIndex);
+		}
+
+		private void trim() {
+			long c = count;
+			if (c - headIndex > maxSize) {
+				advanceHeadTo(c - maxSize);
+			}
+			if (scheduler != null) {
+				long limit = scheduler.now() - maxAgeMillis;
+				while (headIndex < c) {
+					skipFullChunk();
+					int last = headOffset + (int) Math.min(chunkSize - headOffset, c - headIndex) - 1;
+					if (head.timestamps[last] <= limit) {
+						// The rest of the chunk has expired
+						advanceHeadTo(headIndex + last - headOffset + 1);
+						continue;
+					}
+					int low = headOffset;
+					int high = last;
+					while (low < high) {
+						int mid = (low + high) >>> 1;
+						if (head.timestamps[mid] <= limit) {
+							low = mid + 1;
+						} else {
+							high = mid;
+						}
+					}
+					advanceHeadTo(headIndex + low - headOffset);
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Moves the start of the history forward, a chunk at a time
+		 */
+		private void advanceHeadTo(long index) {
+			long n = index - headIndex;
+			while (n > 0) {
+				skipFullChunk();
+				int step = (int) Math.min(n, chunkSize - headOffset);
+				headOffset += step;
+				headIndex += step;
+				n -= step;
+			}
+		}
+
+		// The head may rest at the end of a full chunk until
+		// the producer links the next one
+		private void skipFullChunk() {
+			if (headOffset == chunkSize) {
+				head = head.next;
+				headOffset = 0;
+			}
+		}
+
+		void drain(Cursor<T> cursor) {
+			if (cursor.getAndIncrement() != 0) {
+				return;
+			}
+			Subscriber<? super T> child = cursor.child;
+			int missed = 1;
+			for (;;) {
+				// Read the flag before the count, so that all the values
+				// have been replayed by the time we act on it
+				boolean d = done;
+				long c = count;
+
+				Chunk chunk = cursor.chunk;
+				int offset = cursor.offset;
+				long index = cursor.index;
+				while (index != c) {
+					if (child.isUnsubscribed()) {
+						return;
+					}
+					if (offset == chunkSize) {
+						chunk = chunk.next;
+						offset = 0;
+					}
+					@SuppressWarnings("unchecked")
+					T v = (T) chunk.values[offset];
+					child.onNext(v);
+					offset++;
+					index++;
+				}
+				cursor.chunk = chunk;
+				cursor.offset = offset;
+				cursor.index = index;
+
+				if (d) {
+					// Release the history for this subscriber
+					cursor.chunk = null;
+					Throwable e = error;
+					if (e != null) {
+						child.onError(e);
+					} else {
+						child.onCompleted();
+					}
+					return;
+				}
+
+				missed = cursor.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+
+}
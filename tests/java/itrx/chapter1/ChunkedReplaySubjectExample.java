@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.ReplaySubject;
+
+public class ChunkedReplaySubjectExample {
+
+	public void exampleEarlyLate() {
+		ChunkedReplaySubject<Integer> s = ChunkedReplaySubject.create();
+		s.subscribe(v -> System.out.println("Early:" + v));
+		s.onNext(0);
+		s.onNext(1);
+		s.subscribe(v -> System.out.println("Late: " + v));
+		s.onNext(2);
+
+		// Early:0
+		// Early:1
+		// Late: 0
+		// Late: 1
+		// Early:2
+		// Late: 2
+	}
+
+	public void exampleWithSize() {
+		ChunkedReplaySubject<Integer> s = ChunkedReplaySubject.createWithSize(2);
+		s.onNext(0);
+		s.onNext(1);
+		s.onNext(2);
+		s.subscribe(v -> System.out.println("Late: " + v));
+		s.onNext(3);
+
+		// Late: 1
+		// Late: 2
+		// Late: 3
+	}
+
+	public void exampleWithTime() throws InterruptedException {
+		ChunkedReplaySubject<Integer> s = ChunkedReplaySubject.createWithTime(150, TimeUnit.MILLISECONDS, Schedulers.immediate());
+		s.onNext(0);
+		Thread.sleep(100);
+		s.onNext(1);
+		Thread.sleep(100);
+		s.onNext(2);
+		s.subscribe(v -> System.out.println("Late: " + v));
+		s.onNext(3);
+
+		// Late: 1
+		// Late: 2
+		// Late: 3
+	}
+
+
+	//
+	// Test
+	//
+
+	@Test
+	public void testEarlyLate() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+
+		ChunkedReplaySubject<Integer> s = ChunkedReplaySubject.create();
+		s.subscribe(tester);
+		s.onNext(0);
+		s.onNext(1);
+		s.subscribe(tester);
+		s.onNext(2);
+
+		tester.assertReceivedOnNext(Arrays.asList(0, 1, 0, 1, 2, 2));
+	}
+
+	@Test
+	public void testWithSize() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+
+		ChunkedReplaySubject<Integer> s = ChunkedReplaySubject.createWithSize(2);
+		s.onNext(0);
+		s.onNext(1);
+		s.onNext(2);
+		s.subscribe(tester);
+		s.onNext(3);
+
+		tester.assertReceivedOnNext(Arrays.asList(1,2,3));
+	}
+
+	@Test
+	public void testWithSizeAcrossChunks() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+
+		ChunkedReplaySubject<Integer> s = ChunkedReplaySubject.createWithSize(3, 2);
+		for (int i = 0 ; i < 10 ; i++)
+			s.onNext(i);
+		assertEquals(3, s.size());
+		s.subscribe(tester);
+		s.onNext(10);
+		s.onCompleted();
+
+		tester.assertReceivedOnNext(Arrays.asList(7,8,9,10));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testWithTime() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		ChunkedReplaySubject<Integer> s = ChunkedReplaySubject.createWithTime(150, TimeUnit.MILLISECONDS, scheduler);
+		s.onNext(0);
+		scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+		s.onNext(1);
+		scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+		s.onNext(2);
+		s.subscribe(tester);
+		s.onNext(3);
+
+		tester.assertReceivedOnNext(Arrays.asList(1,2,3));
+	}
+
+	@Test
+	public void testWithTimeAcrossChunks() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		ChunkedReplaySubject<Integer> s = ChunkedReplaySubject.createWithTime(150, TimeUnit.MILLISECONDS, scheduler, 2);
+		for (int i = 0 ; i < 5 ; i++) {
+			s.onNext(i);
+			scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+		}
+		s.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(4));
+	}
+
+	@Test
+	public void testWithTimeSameAsReplaySubject() {
+		TestScheduler scheduler = Schedulers.test();
+		Random random = new Random(3);
+
+		ChunkedReplaySubject<Integer> s = ChunkedReplaySubject.createWithTime(100, TimeUnit.MILLISECONDS, scheduler, 4);
+		ReplaySubject<Integer> expected = ReplaySubject.createWithTime(100, TimeUnit.MILLISECONDS, scheduler);
+		for (int i = 0 ; i < 1000 ; i++) {
+			// Bursts of values, then quiet periods of up to 3 windows
+			int burst = random.nextInt(20);
+			for (int j = 0 ; j < burst ; j++) {
+				s.onNext(i * 100 + j);
+				expected.onNext(i * 100 + j);
+				scheduler.advanceTimeBy(random.nextInt(10), TimeUnit.MILLISECONDS);
+			}
+			scheduler.advanceTimeBy(random.nextInt(300), TimeUnit.MILLISECONDS);
+
+			TestSubscriber<Integer> actualTester = new TestSubscriber<Integer>();
+			TestSubscriber<Integer> expectedTester = new TestSubscriber<Integer>();
+			s.subscribe(actualTester);
+			expected.subscribe(expectedTester);
+			actualTester.unsubscribe();
+			expectedTester.unsubscribe();
+			actualTester.assertReceivedOnNext(expectedTester.getOnNextEvents());
+		}
+	}
+
+	@Test
+	public void testUnsubscribe() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+
+		ChunkedReplaySubject<Integer> s = ChunkedReplaySubject.create();
+		Subscription subscription = s.subscribe(tester);
+		s.onNext(0);
+		subscription.unsubscribe();
+		s.onNext(1);
+
+		tester.assertReceivedOnNext(Arrays.asList(0));
+		assertEquals(false, s.hasObservers());
+	}
+
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Subscriber;
+import rx.subjects.Subject;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A PublishSubject that may be fed from several threads at once.
+ * Producers only enqueue their events. Whichever producer finds the
+ * subject idle becomes the emitter and drains the queue to the subscribers,
+ * so that subscribers still observe a serialized sequence.
+ * <p>
+ * Subscribers are kept in a copy-on-write {@link SubscriberArray}, unless
+ * a different {@link SubscriberRegistry} is given.
+ *
+ * @param <T> The type of the values
+ */
+public final class ConcurrentPublishSubject<T> extends Subject<T, T> {
+
+	private final State<T> state;
+
+	public static <T> ConcurrentPublishSubject<T> create() {
+		return create(new SubscriberArray<>());
+	}
+
+	/**
+	 * Creates a subject that keeps its subscribers in the given registry.
+	 */
+	public static <T> ConcurrentPublishSubject<T> create(SubscriberRegistry<Subscriber<? super T>> subscribers) {
+		State<T> state = new State<>(subscribers);
+		return new ConcurrentPublishSubject<>(state);
+	}
+
+	private ConcurrentPublishSubject(State<T> state) {
+		super(child -> {
+			if (state.subscribers.add(child)) {
+				child.add(Subscriptions.create(() -> state.subscribers.remove(child)));
+			} else {
+				state.emitTerminal(child);
+			}
+		});
+		this.state = state;
+	}
+
+	@Override
+	public void onNext(T t) {
+		if (state.terminal.get() == null) {
+			state.queue.offer(t == null ? State.NULL : t);
+			state.drain();
+		}
+	}
+
+	@Override
+	public void onError(Throwable e) {
+		// Of concurrent terminal events, only the first one counts
+		if (state.terminal.compareAndSet(null, e)) {
+			state.drain();
+		}
+	}
+
+	@Override
+	public void onCompleted() {
+		if (state.terminal.compareAndSet(null, State.COMPLETED)) {
+			state.drain();
+		}
+	}
+
+	@Override
+	public boolean hasObservers() {
+		return state.subscribers.size() > 0;
+	}
+
+	private static final class State<T> extends AtomicInteger {
+		private static final long serialVersionUID = 1L;
+
+		static final Object NULL = new Object();
+		static final Object COMPLETED = new Object();
+
+		final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+		final SubscriberRegistry<Subscriber<? super T>> subscribers;
+
+		// COMPLETED or the error, once terminated
+		final AtomicReference<Object> terminal = new AtomicReference<>();
+
+		State(SubscriberRegistry<Subscriber<? super T>> subscribers) {
+			this.subscribers = subscribers;
+		}
+
+		void drain() {
+			if (getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			for (;;) {
+				for (;;) {
+					// Read the flag before polling, so that an empty queue
+					// guarantees that every value has been emitted
+					boolean d = terminal.get() != null;
+					Object o = queue.poll();
+					if (o == null) {
+						if (d) {
+							subscribers.terminate(this::emitTerminal);
+							return;
+						}
+						break;
+					}
+					@SuppressWarnings("unchecked")
+					T v = o == NULL ? null : (T) o;
+					subscribers.forEach(s -> s.onNext(v));
+				}
+				missed = addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+		void emitTerminal(Subscriber<? super T> child) {
+			Object t = terminal.get();
+			if (t instanceof Throwable) {
+				child.onError((Throwable) t);
+			} else {
+				child.onCompleted();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+
+public class ConcurrentPublishSubjectExample {
+
+	public void example() {
+		ConcurrentPublishSubject<Integer> subject = ConcurrentPublishSubject.create();
+		subject.onNext(1);
+		subject.subscribe(System.out::println);
+		subject.onNext(2);
+		subject.onNext(3);
+		subject.onNext(4);
+
+		// 2
+		// 3
+		// 4
+	}
+
+	public void exampleProducers() throws InterruptedException {
+		ConcurrentPublishSubject<Integer> subject = ConcurrentPublishSubject.create();
+		subject
+			.count()
+			.subscribe(c -> System.out.println("Received " + c));
+
+		List<Thread> producers = new ArrayList<>();
+		for (int p = 0 ; p < 4 ; p++) {
+			Thread producer = new Thread(() -> {
+				for (int i = 0 ; i < 1000 ; i++)
+					subject.onNext(i);
+			});
+			producer.start();
+			producers.add(producer);
+		}
+		for (Thread producer : producers)
+			producer.join();
+		subject.onCompleted();
+
+		// Received 4000
+	}
+
+
+	//
+	// Test
+	//
+
+	@Test
+	public void test() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		ConcurrentPublishSubject<Integer> subject = ConcurrentPublishSubject.create();
+		subject.onNext(1);
+		subject.subscribe(tester);
+		subject.onNext(2);
+		subject.onNext(3);
+		subject.onNext(4);
+
+		tester.assertReceivedOnNext(Arrays.asList(2,3,4));
+	}
+
+	@Test
+	public void testProducers() throws InterruptedException {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		AtomicBoolean inside = new AtomicBoolean();
+		AtomicBoolean overlapped = new AtomicBoolean();
+
+		ConcurrentPublishSubject<Integer> subject = ConcurrentPublishSubject.create();
+		subject
+			.doOnNext(i -> {
+				if (!inside.compareAndSet(false, true))
+					overlapped.set(true);
+				inside.set(false);
+			})
+			.subscribe(tester);
+
+		List<Thread> producers = new ArrayList<>();
+		for (int p = 0 ; p < 4 ; p++) {
+			Thread producer = new Thread(() -> {
+				for (int i = 0 ; i < 1000 ; i++)
+					subject.onNext(i);
+			});
+			producer.start();
+			producers.add(producer);
+		}
+		for (Thread producer : producers)
+			producer.join();
+		subject.onCompleted();
+
+		assertEquals(4000, tester.getOnNextEvents().size());
+		assertFalse(overlapped.get());
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testConcurrentTerminals() throws InterruptedException {
+		for (int round = 0 ; round < 500 ; round++) {
+			ConcurrentPublishSubject<Integer> subject = ConcurrentPublishSubject.create();
+			List<TestSubscriber<Integer>> testers = new ArrayList<>();
+			for (int i = 0 ; i < 4 ; i++) {
+				TestSubscriber<Integer> tester = new TestSubscriber<>();
+				subject.subscribe(tester);
+				testers.add(tester);
+			}
+			CountDownLatch start = new CountDownLatch(1);
+			Thread failing = new Thread(() -> {
+				awaitQuietly(start);
+				subject.onError(new RuntimeException());
+			});
+			Thread completing = new Thread(() -> {
+				awaitQuietly(start);
+				subject.onCompleted();
+			});
+			failing.start();
+			completing.start();
+			start.countDown();
+			failing.join();
+			completing.join();
+
+			// Every subscriber sees the same terminal event
+			int errors = testers.get(0).getOnErrorEvents().size();
+			for (TestSubscriber<Integer> tester : testers) {
+				assertEquals(errors, tester.getOnErrorEvents().size());
+				assertEquals(1 - errors, tester.getOnCompletedEvents().size());
+			}
+		}
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void testLateSubscriber() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		ConcurrentPublishSubject<Integer> subject = ConcurrentPublishSubject.create();
+		subject.onNext(1);
+		subject.onCompleted();
+		subject.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList());
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+}
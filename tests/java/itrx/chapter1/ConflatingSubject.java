@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Producer;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subjects.Subject;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A BehaviorSubject for slow subscribers. Every subscriber has a single
+ * slot for the latest value that it hasn't received yet. New values
+ * overwrite the slot instead of queueing behind it, so a slow subscriber
+ * skips the values that it couldn't keep up with, rather than building
+ * up a backlog.
+ * <p>
+ * Each subscriber receives its values on its own scheduler worker, which
+ * is only woken when there is a value and the previous one has been
+ * consumed. A value is only taken from the slot when the subscriber has
+ * requested it, so a subscriber behind observeOn keeps receiving the latest
+ * value instead of overflowing.
+ *
+ * @param <T> The type of the values
+ */
+public final class ConflatingSubject<T> extends Subject<T, T> {
+
+	private static final Object EMPTY = new Object();
+	private static final Object NULL = new Object();
+
+	private final State<T> state;
+
+	public static <T> ConflatingSubject<T> create(Scheduler scheduler) {
+		return new ConflatingSubject<>(new State<T>(EMPTY, scheduler));
+	}
+
+	public static <T> ConflatingSubject<T> create(T defaultValue, Scheduler scheduler) {
+		return new ConflatingSubject<>(new State<T>(defaultValue == null ? NULL : defaultValue, scheduler));
+	}
+
+	private ConflatingSubject(State<T> state) {
+		super(state::subscribe);
+		this.state = state;
+	}
+
+	@Override
+	public void onNext(T t) {
+		state.onNext(t == null ? NULL : t);
+	}
+
+	@Override
+	public void onError(Throwable e) {
+		state.terminate(e);
+	}
+
+	@Override
+	public void onCompleted() {
+		state.terminate(null);
+	}
+
+	@Override
+	public boolean hasObservers() {
+		return state.subscribers.size() > 0;
+	}
+
+	/**
+	 * The subject only hands values over to the subscribers' slots under its
+	 * lock. Values are delivered outside of it, on each subscriber's worker.
+	 */
+	private static final class State<T> {
+		final SubscriberArray<Slot<T>> subscribers = new SubscriberArray<>();
+		final Scheduler scheduler;
+		Object value;
+		boolean done;
+		Throwable error;
+
+		State(Object initial, Scheduler scheduler) {
+			this.value = initial;
+			this.scheduler = scheduler;
+		}
+
+		void subscribe(Subscriber<? super T> child) {
+			Slot<T> slot = new Slot<>(child, scheduler.createWorker());
+			child.add(slot.worker);
+			child.setProducer(slot);
+			synchronized (this) {
+				if (subscribers.add(slot)) {
+					child.add(Subscriptions.create(() -> subscribers.remove(slot)));
+				} else {
+					slot.terminate(error);
+					return;
+				}
+				if (value != EMPTY) {
+					slot.offer(value);
+				}
+			}
+		}
+
+		synchronized void onNext(Object v) {
+			if (!done) {
+				value = v;
+				for (Object o : subscribers.snapshot()) {
+					@SuppressWarnings("unchecked")
+					Slot<T> slot = (Slot<T>) o;
+					slot.offer(v);
+				}
+			}
+		}
+
+		synchronized void terminate(Throwable e) {
+			if (!done) {
+				done = true;
+				error = e;
+				subscribers.terminate(slot -> slot.terminate(e));
+			}
+		}
+	}
+
+	private static final class Slot<T> extends AtomicInteger implements Action0, Producer {
+		private static final long serialVersionUID = 1L;
+
+		final Subscriber<? super T> child;
+		final Scheduler.Worker worker;
+		final AtomicReference<Object> latest = new AtomicReference<>(EMPTY);
+		final AtomicLong requested = new AtomicLong();
+		volatile boolean done;
+		Throwable error;
+
+		Slot(Subscriber<? super T> child, Scheduler.Worker worker) {
+			this.child = child;
+			this.worker = worker;
+		}
+
+		void offer(Object v) {
+			latest.set(v);
+			schedule();
+		}
+
+		void terminate(Throwable e) {
+			error = e;
+			done = true;
+			schedule();
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				return;
+			}
+			long r;
+			long u;
+			do {
+				r = requested.get();
+				u = r + n;
+				if (u < 0) {
+					u = Long.MAX_VALUE;
+				}
+			} while (!requested.compareAndSet(r, u));
+			schedule();
+		}
+
+		private void schedule() {
+			if (getAndIncrement() == 0) {
+				worker.schedule(this);
+			}
+		}
+
+		@Override
+		public void call() {
+			int missed = 1;
+			for (;;) {
+				if (child.isUnsubscribed()) {
+					return;
+				}
+				// Read the flag before the slot, so that the last value
+				// is always delivered before the terminal event
+				boolean d = done;
+				long r = requested.get();
+				if (r != 0) {
+					Object v = latest.getAndSet(EMPTY);
+					if (v != EMPTY) {
+						@SuppressWarnings("unchecked")
+						T t = v == NULL ? null : (T) v;
+						child.onNext(t);
+						if (r != Long.MAX_VALUE) {
+							requested.decrementAndGet();
+						}
+						continue;
+					}
+				}
+				// Without demand, the value stays in the slot and the
+				// terminal event waits behind it
+				if (d && latest.get() == EMPTY) {
+					if (error != null) {
+						child.onError(error);
+					} else {
+						child.onCompleted();
+					}
+					worker.unsubscribe();
+					return;
+				}
+				missed = addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+public class ConflatingSubjectExample {
+
+	public void exampleSlowSubscriber() throws InterruptedException {
+		ConflatingSubject<Integer> s = ConflatingSubject.create(Schedulers.newThread());
+		s.subscribe(v -> {
+			System.out.println("Received " + v);
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) { }
+		});
+		for (int i = 0 ; i < 10 ; i++) {
+			s.onNext(i);
+			Thread.sleep(30);
+		}
+		Thread.sleep(200);
+
+		// Received 0
+		// Received 3
+		// Received 6
+		// Received 9
+	}
+
+	public void exampleInitialValue() throws InterruptedException {
+		ConflatingSubject<Integer> s = ConflatingSubject.create(0, Schedulers.newThread());
+		s.subscribe(v -> System.out.println(v));
+		s.onNext(1);
+		Thread.sleep(100);
+
+		// 0
+		// 1
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testSlowSubscriber() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		ConflatingSubject<Integer> s = ConflatingSubject.create(scheduler);
+		s.subscribe(tester);
+		s.onNext(0);
+		scheduler.triggerActions();
+		// The subscriber doesn't get to run while the burst is going on
+		for (int i = 1 ; i <= 1_000_000 ; i++)
+			s.onNext(i);
+		scheduler.triggerActions();
+
+		tester.assertReceivedOnNext(Arrays.asList(0, 1_000_000));
+	}
+
+	@Test
+	public void testObserveOn() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler subjectScheduler = Schedulers.test();
+		TestScheduler consumerScheduler = Schedulers.test();
+
+		ConflatingSubject<Integer> s = ConflatingSubject.create(subjectScheduler);
+		s.observeOn(consumerScheduler).subscribe(tester);
+		for (int i = 0 ; i < 1000000 ; i++) {
+			s.onNext(i);
+			subjectScheduler.triggerActions();
+			// The consumer falls far behind
+			if (i % 1000 == 0)
+				consumerScheduler.triggerActions();
+		}
+		s.onCompleted();
+		subjectScheduler.triggerActions();
+		consumerScheduler.triggerActions();
+		subjectScheduler.triggerActions();
+		consumerScheduler.triggerActions();
+
+		tester.assertNoErrors();
+		tester.assertTerminalEvent();
+		List<Integer> received = tester.getOnNextEvents();
+		assertTrue(received.size() < 1000000);
+		assertEquals(Integer.valueOf(999999), received.get(received.size() - 1));
+		for (int i = 1 ; i < received.size() ; i++)
+			assertTrue(received.get(i - 1) < received.get(i));
+	}
+
+	@Test
+	public void testIndependentSubscribers() {
+		TestSubscriber<Integer> fast = new TestSubscriber<Integer>();
+		TestSubscriber<Integer> slow = new TestSubscriber<Integer>();
+		TestScheduler fastScheduler = Schedulers.test();
+		TestScheduler slowScheduler = Schedulers.test();
+
+		ConflatingSubject<Integer> s1 = ConflatingSubject.create(fastScheduler);
+		ConflatingSubject<Integer> s2 = ConflatingSubject.create(slowScheduler);
+		s1.subscribe(fast);
+		s2.subscribe(slow);
+		for (int i = 0 ; i < 3 ; i++) {
+			s1.onNext(i);
+			s2.onNext(i);
+			fastScheduler.triggerActions();
+		}
+		slowScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+		fast.assertReceivedOnNext(Arrays.asList(0,1,2));
+		slow.assertReceivedOnNext(Arrays.asList(2));
+	}
+
+	@Test
+	public void testLate() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		ConflatingSubject<Integer> s = ConflatingSubject.create(0, scheduler);
+		s.onNext(1);
+		s.onNext(2);
+		s.subscribe(tester);
+		s.onNext(3);
+		scheduler.triggerActions();
+		s.onNext(4);
+		scheduler.triggerActions();
+
+		tester.assertReceivedOnNext(Arrays.asList(3,4));
+	}
+
+	@Test
+	public void testCompleted() {
+		TestSubscriber<Integer> early = new TestSubscriber<Integer>();
+		TestSubscriber<Integer> late = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		ConflatingSubject<Integer> s = ConflatingSubject.create(scheduler);
+		s.subscribe(early);
+		s.onNext(0);
+		s.onNext(1);
+		s.onCompleted();
+		s.subscribe(late);
+		scheduler.triggerActions();
+
+		early.assertReceivedOnNext(Arrays.asList(1));
+		early.assertTerminalEvent();
+		late.assertReceivedOnNext(Arrays.asList());
+		late.assertTerminalEvent();
+		assertEquals(false, s.hasObservers());
+	}
+
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.Observable.Transformer;
+import rx.Subscriber;
+
+/**
+ * Checks that a pipeline respects the Rx contract. Violations are recorded
+ * in {@link ContractViolations} and events after termination are dropped.
+ * <p>
+ * Checking is enabled per pipeline with the system property
+ * {@value #PROPERTY}, which holds a comma-separated list of pipeline names,
+ * or * for all of them. The property is read once. A pipeline that isn't
+ * checked is left exactly as it was, so it pays nothing at runtime.
+ */
+public final class ContractChecks {
+
+	public static final String PROPERTY = "itrx.contract.check";
+
+	private static final Set<String> PIPELINES = parse(System.getProperty(PROPERTY, ""));
+	private static final boolean ENABLED = !PIPELINES.isEmpty();
+	private static final boolean ALL = PIPELINES.contains("*");
+
+	private ContractChecks() {
+	}
+
+	/**
+	 * Checks the pipeline only if it is enabled through {@value #PROPERTY}.
+	 */
+	public static <T> Transformer<T, T> forPipeline(String pipeline) {
+		if (ENABLED && (ALL || PIPELINES.contains(pipeline))) {
+			return always(pipeline, ContractViolations.DEFAULT);
+		}
+		return o -> o;
+	}
+
+	/**
+	 * Checks the pipeline regardless of {@value #PROPERTY}.
+	 */
+	public static <T> Transformer<T, T> always(String pipeline, ContractViolations violations) {
+		return o -> o.lift((Observable.Operator<T, T>) child -> new CheckingSubscriber<T>(child, pipeline, violations));
+	}
+
+	private static Set<String> parse(String property) {
+		Set<String> pipelines = new HashSet<>();
+		for (String pipeline : Arrays.asList(property.split(","))) {
+			if (!pipeline.trim().isEmpty()) {
+				pipelines.add(pipeline.trim());
+			}
+		}
+		return Collections.unmodifiableSet(pipelines);
+	}
+
+	private static final class CheckingSubscriber<T> extends Subscriber<T> {
+		private final Subscriber<? super T> child;
+		private final String pipeline;
+		private final ContractViolations violations;
+		private final AtomicInteger inOnNext = new AtomicInteger();
+		private final AtomicBoolean terminated = new AtomicBoolean();
+
+		CheckingSubscriber(Subscriber<? super T> child, String pipeline, ContractViolations violations) {
+			super(child);
+			this.child = child;
+			this.pipeline = pipeline;
+			this.violations = violations;
+		}
+
+		@Override
+		public void onNext(T t) {
+			if (terminated.get()) {
+				violations.record(pipeline, ContractViolations.Kind.NEXT_AFTER_TERMINAL);
+				return;
+			}
+			if (inOnNext.getAndIncrement() != 0) {
+				violations.record(pipeline, ContractViolations.Kind.CONCURRENT_NEXT);
+			}
+			try {
+				child.onNext(t);
+			} finally {
+				inOnNext.decrementAndGet();
+			}
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			// Only one of concurrent terminal events gets through
+			if (!terminated.compareAndSet(false, true)) {
+				violations.record(pipeline, ContractViolations.Kind.DUPLICATE_TERMINAL);
+				return;
+			}
+			child.onError(e);
+		}
+
+		@Override
+		public void onCompleted() {
+			// Only one of concurrent terminal events gets through
+			if (!terminated.compareAndSet(false, true)) {
+				violations.record(pipeline, ContractViolations.Kind.DUPLICATE_TERMINAL);
+				return;
+			}
+			child.onCompleted();
+		}
+	}
+}
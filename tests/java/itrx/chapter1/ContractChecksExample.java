@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.observers.TestSubscriber;
+
+public class ContractChecksExample {
+
+	public void example() {
+		ContractViolations violations = new ContractViolations();
+		Observable<Integer> values = Observable.create(o -> {
+			o.onNext(0);
+			o.onCompleted();
+			o.onNext(1);
+			o.onCompleted();
+		});
+
+		values
+			.compose(ContractChecks.always("example", violations))
+			.map(i -> i * 10)
+			.subscribe(
+				v -> System.out.println(v),
+				e -> System.out.println("Error: " + e),
+				() -> System.out.println("Completed"));
+		System.out.println("Violations: " + violations.get("example").total());
+
+		// 0
+		// Completed
+		// Violations: 2
+	}
+
+	public void exampleDisabled() {
+		Observable<Integer> values = Observable.just(1);
+
+		// Unless the program was started with -Ditrx.contract.check=example
+		System.out.println(values == values.compose(ContractChecks.forPipeline("example")));
+
+		// true
+	}
+
+
+	//
+	// Test
+	//
+
+	@Test
+	public void test() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		ContractViolations violations = new ContractViolations();
+
+		Observable<Integer> values = Observable.create(o -> {
+			o.onNext(0);
+			o.onCompleted();
+			o.onNext(1);
+			o.onCompleted();
+		});
+		values
+			.compose(ContractChecks.always("test", violations))
+			.map(i -> i * 10)
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(0));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+
+		ContractViolations.Record record = violations.get("test");
+		assertEquals(1, record.count(ContractViolations.Kind.NEXT_AFTER_TERMINAL));
+		assertEquals(1, record.count(ContractViolations.Kind.DUPLICATE_TERMINAL));
+		assertEquals(Thread.currentThread().getName(), record.lastThread());
+		assertEquals(2, record.samples().size());
+	}
+
+	@Test
+	public void testConcurrentTerminals() throws InterruptedException {
+		ContractViolations violations = new ContractViolations();
+		AtomicInteger terminals = new AtomicInteger();
+		int rounds = 1000;
+
+		for (int i = 0 ; i < rounds ; i++) {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Thread> threads = new ArrayList<>();
+			Observable.<Integer>create(o -> {
+				for (int t = 0 ; t < 2 ; t++) {
+					Thread thread = new Thread(() -> {
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						o.onCompleted();
+					});
+					thread.start();
+					threads.add(thread);
+				}
+			})
+				.compose(ContractChecks.always("test", violations))
+				// Not subscribe, which would hide the duplicate behind a SafeSubscriber
+				.unsafeSubscribe(new Subscriber<Integer>() {
+					@Override
+					public void onNext(Integer v) {
+					}
+
+					@Override
+					public void onError(Throwable e) {
+						terminals.incrementAndGet();
+					}
+
+					@Override
+					public void onCompleted() {
+						terminals.incrementAndGet();
+					}
+				});
+			start.countDown();
+			for (Thread thread : threads)
+				thread.join();
+		}
+
+		assertEquals(rounds, terminals.get());
+		assertEquals(rounds, violations.get("test").count(ContractViolations.Kind.DUPLICATE_TERMINAL));
+	}
+
+	@Test
+	public void testDisabled() {
+		Observable<Integer> values = Observable.just(1);
+
+		assertSame(values, values.compose(ContractChecks.forPipeline("test")));
+	}
+
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the violations of the Rx contract that {@link ContractChecks}
+ * caught, per pipeline.
+ */
+public final class ContractViolations {
+
+	public static final ContractViolations DEFAULT = new ContractViolations();
+
+	/**
+	 * How many stack traces are kept per pipeline
+	 */
+	public static final int MAX_SAMPLES = 8;
+
+	public enum Kind {
+		/** onNext after onCompleted or onError */
+		NEXT_AFTER_TERMINAL,
+		/** A second onCompleted or onError */
+		DUPLICATE_TERMINAL,
+		/** onNext while another onNext was still running */
+		CONCURRENT_NEXT
+	}
+
+	private final ConcurrentMap<String, Record> records = new ConcurrentHashMap<>();
+
+	void record(String pipeline, Kind kind) {
+		records.computeIfAbsent(pipeline, p -> new Record()).record(kind);
+	}
+
+	public Record get(String pipeline) {
+		Record record = records.get(pipeline);
+		return record == null ? new Record() : record;
+	}
+
+	public static final class Record {
+		private final LongAdder[] counts = new LongAdder[Kind.values().length];
+		private final List<StackTraceElement[]> samples = new ArrayList<>();
+		private volatile String lastThread;
+
+		Record() {
+			for (int i = 0 ; i < counts.length ; i++) {
+				counts[i] = new LongAdder();
+			}
+		}
+
+		void record(Kind kind) {
+			counts[kind.ordinal()].increment();
+			lastThread = Thread.currentThread().getName();
+			synchronized (samples) {
+				if (samples.size() < MAX_SAMPLES) {
+					samples.add(new Throwable().getStackTrace());
+				}
+			}
+		}
+
+		public long count(Kind kind) {
+			return counts[kind.ordinal()].sum();
+		}
+
+		public long total() {
+			long total = 0;
+			for (LongAdder count : counts) {
+				total += count.sum();
+			}
+			return total;
+		}
+
+		/**
+		 * @return The name of the thread that caused the latest violation
+		 */
+		public String lastThread() {
+			return lastThread;
+		}
+
+		/**
+		 * @return The stack traces of the first violations
+		 */
+		public List<StackTraceElement[]> samples() {
+			synchronized (samples) {
+				return Collections.unmodifiableList(new ArrayList<>(samples));
+			}
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import rx.functions.Func0;
+import rx.subjects.AsyncSubject;
+import rx.subjects.BehaviorSubject;
+import rx.subjects.PublishSubject;
+import rx.subjects.ReplaySubject;
+import rx.subjects.Subject;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Wraps a subject and measures it: how many values it emitted, how long it
+ * took to hand each one to all the subscribers, how many subscribers it
+ * has and how many values it holds for replaying.
+ * <p>
+ * Subjects can be registered under a name, so that the metrics of all of
+ * them can be collected together with {@link #scrape()}.
+ *
+ * @param <T> The type of the values
+ */
+public final class InstrumentedSubject<T> extends Subject<T, T> {
+
+	private static final ConcurrentMap<String, InstrumentedSubject<?>> REGISTRY = new ConcurrentHashMap<>();
+
+	private final Subject<T, T> subject;
+	private final Metrics metrics;
+	// The subject ignores values after it terminates, so they aren't measured
+	private volatile boolean terminated;
+
+	public static <T> InstrumentedSubject<T> publish(PublishSubject<T> subject) {
+		return wrap(subject, () -> 0);
+	}
+
+	public static <T> InstrumentedSubject<T> behavior(BehaviorSubject<T> subject) {
+		return wrap(subject, () -> subject.hasValue() ? 1 : 0);
+	}
+
+	public static <T> InstrumentedSubject<T> replay(ReplaySubject<T> subject) {
+		return wrap(subject, subject::size);
+	}
+
+	public static <T> InstrumentedSubject<T> async(AsyncSubject<T> subject) {
+		return wrap(subject, () -> subject.hasValue() ? 1 : 0);
+	}
+
+	/**
+	 * @param bufferSize Reports how many values the subject holds for replaying
+	 */
+	public static <T> InstrumentedSubject<T> wrap(Subject<T, T> subject, Func0<Integer> bufferSize) {
+		return new InstrumentedSubject<>(subject, new Metrics(bufferSize));
+	}
+
+	private InstrumentedSubject(Subject<T, T> subject, Metrics metrics) {
+		super(child -> {
+			metrics.subscribers.increment();
+			child.add(Subscriptions.create(metrics.subscribers::decrement));
+			subject.unsafeSubscribe(child);
+		});
+		this.subject = subject;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void onNext(T t) {
+		if (terminated) {
+			return;
+		}
+		long start = System.nanoTime();
+		subject.onNext(t);
+		metrics.fanOut.record(System.nanoTime() - start);
+		metrics.emitted.increment();
+	}
+
+	@Override
+	public void onError(Throwable e) {
+		terminated = true;
+		subject.onError(e);
+	}
+
+	@Override
+	public void onCompleted() {
+		terminated = true;
+		subject.onCompleted();
+	}
+
+	@Override
+	public boolean hasObservers() {
+		return subject.hasObservers();
+	}
+
+	public SubjectMetrics metrics() {
+		return new SubjectMetrics(
+				metrics.emitted.sum(),
+				(int) metrics.subscribers.sum(),
+				metrics.bufferSize.call(),
+				metrics.fanOut.percentile(50),
+				metrics.fanOut.percentile(99),
+				metrics.fanOut.max());
+	}
+
+	/**
+	 * Makes the subject's metrics part of {@link #scrape()}
+	 * @return The subject itself
+	 */
+	public InstrumentedSubject<T> register(String name) {
+		REGISTRY.put(name, this);
+		return this;
+	}
+
+	public void unregister(String name) {
+		REGISTRY.remove(name, this);
+	}
+
+	/**
+	 * @return The metrics of every registered subject, by name
+	 */
+	public static Map<String, SubjectMetrics> scrape() {
+		Map<String, SubjectMetrics> metrics = new TreeMap<>();
+		REGISTRY.forEach((name, subject) -> metrics.put(name, subject.metrics()));
+		return metrics;
+	}
+
+	private static final class Metrics {
+		final LongAdder emitted = new LongAdder();
+		final LongAdder subscribers = new LongAdder();
+		final LatencyHistogram fanOut = new LatencyHistogram();
+		final Func0<Integer> bufferSize;
+
+		Metrics(Func0<Integer> bufferSize) {
+			this.bufferSize = bufferSize;
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.subjects.AsyncSubject;
+import rx.subjects.BehaviorSubject;
+import rx.subjects.PublishSubject;
+import rx.subjects.ReplaySubject;
+
+public class InstrumentedSubjectExample {
+
+	public void example() {
+		InstrumentedSubject<Integer> prices = InstrumentedSubject
+			.replay(ReplaySubject.<Integer>createWithSize(2))
+			.register("prices");
+		prices.subscribe(v -> {});
+		prices.subscribe(v -> {});
+		prices.onNext(1);
+		prices.onNext(2);
+		prices.onNext(3);
+
+		InstrumentedSubject.scrape().forEach((name, metrics) ->
+			System.out.println(name + ": " + metrics));
+		prices.unregister("prices");
+
+		// prices: emitted=3 subscribers=2 buffer=2 fanout(p50=8191ns p99=284864ns max=284864ns)
+	}
+
+
+	//
+	// Test
+	//
+
+	@Test
+	public void testPublish() {
+		InstrumentedSubject<Integer> s = InstrumentedSubject.publish(PublishSubject.create());
+		Subscription first = s.subscribe(v -> {});
+		s.subscribe(v -> {});
+		s.onNext(0);
+		first.unsubscribe();
+		s.onNext(1);
+
+		SubjectMetrics metrics = s.metrics();
+		assertEquals(2, metrics.emitted);
+		assertEquals(1, metrics.subscribers);
+		assertEquals(0, metrics.bufferSize);
+		assertTrue(metrics.fanOutP50Nanos <= metrics.fanOutP99Nanos);
+		assertTrue(metrics.fanOutP99Nanos <= metrics.fanOutMaxNanos);
+	}
+
+	@Test
+	public void testAfterTermination() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		InstrumentedSubject<Integer> s = InstrumentedSubject.publish(PublishSubject.create());
+		s.subscribe(tester);
+		s.onNext(0);
+		s.onCompleted();
+		s.onNext(1);
+
+		tester.assertReceivedOnNext(Arrays.asList(0));
+		assertEquals(1, s.metrics().emitted);
+	}
+
+	@Test
+	public void testReplay() {
+		InstrumentedSubject<Integer> s = InstrumentedSubject.replay(ReplaySubject.<Integer>createWithSize(2));
+		s.onNext(0);
+		s.onNext(1);
+		s.onNext(2);
+
+		assertEquals(3, s.metrics().emitted);
+		assertEquals(2, s.metrics().bufferSize);
+	}
+
+	@Test
+	public void testBehaviorAndAsync() {
+		InstrumentedSubject<Integer> behavior = InstrumentedSubject.behavior(BehaviorSubject.create(0));
+		InstrumentedSubject<Integer> async = InstrumentedSubject.async(AsyncSubject.create());
+
+		assertEquals(1, behavior.metrics().bufferSize);
+		assertEquals(0, async.metrics().bufferSize);
+		async.onNext(1);
+		assertEquals(1, async.metrics().bufferSize);
+	}
+
+	@Test
+	public void testScrape() {
+		InstrumentedSubject<Integer> s = InstrumentedSubject
+			.publish(PublishSubject.<Integer>create())
+			.register("test");
+		s.onNext(0);
+
+		Map<String, SubjectMetrics> scraped = InstrumentedSubject.scrape();
+		assertEquals(1, scraped.get("test").emitted);
+
+		s.unregister("test");
+		assertEquals(null, InstrumentedSubject.scrape().get("test"));
+	}
+
+	@Test
+	public void testHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1 ; i <= 100 ; i++)
+			histogram.record(i * 100);
+
+		assertEquals(100, histogram.count());
+		assertEquals(10_000, histogram.max());
+		// Within a factor of two
+		assertTrue(histogram.percentile(50) >= 5_000);
+		assertTrue(histogram.percentile(50) < 10_000);
+		assertEquals(10_000, histogram.percentile(100));
+	}
+
+}
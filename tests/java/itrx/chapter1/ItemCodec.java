@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns values into bytes and back, so that they can be stored off the heap.
+ *
+ * @param <T> The type of the values
+ */
+public interface ItemCodec<T> {
+
+	/**
+	 * @return The number of bytes that {@link #encode(Object, ByteBuffer)} will write
+	 */
+	int size(T value);
+
+	/**
+	 * Writes the value at the buffer's position
+	 */
+	void encode(T value, ByteBuffer dst);
+
+	/**
+	 * Reads a value between the buffer's position and its limit
+	 */
+	T decode(ByteBuffer src);
+
+	ItemCodec<Long> LONG = new ItemCodec<Long>() {
+		@Override
+		public int size(Long value) {
+			return 8;
+		}
+
+		@Override
+		public void encode(Long value, ByteBuffer dst) {
+			dst.putLong(value);
+		}
+
+		@Override
+		public Long decode(ByteBuffer src) {
+			return src.getLong();
+		}
+	};
+
+	ItemCodec<String> UTF8 = new ItemCodec<String>() {
+		@Override
+		public int size(String value) {
+			return value.getBytes(StandardCharsets.UTF_8).length;
+		}
+
+		@Override
+		public void encode(String value, ByteBuffer dst) {
+			dst.put(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public String decode(ByteBuffer src) {
+			return StandardCharsets.UTF_8.decode(src).toString();
+		}
+	};
+}
@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.subjects.Subject;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * An unbounded ReplaySubject that keeps its history off the heap. Values
+ * are encoded with an {@link ItemCodec} into direct or memory-mapped
+ * segments. Every subscriber decodes the history straight from the
+ * segments through its own view of them, so the subject doesn't hold on to
+ * any value objects.
+ * <p>
+ * The history grows until {@link #dispose()} releases it.
+ *
+ * @param <T> The type of the values
+ */
+public final class OffHeapReplaySubject<T> extends Subject<T, T> {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	private static final int END_OF_SEGMENT = -1;
+
+	private final Buffer<T> buffer;
+
+	/**
+	 * Keeps the history in direct ByteBuffers
+	 */
+	public static <T> OffHeapReplaySubject<T> create(ItemCodec<T> codec) {
+		return create(codec, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public static <T> OffHeapReplaySubject<T> create(ItemCodec<T> codec, int segmentSize) {
+		return new OffHeapReplaySubject<>(new Buffer<>(codec, segmentSize, ByteBuffer::allocateDirect, () -> { }));
+	}
+
+	/**
+	 * Keeps the history in files of the directory, which are mapped into
+	 * memory. Every subject creates files with names of its own, so several
+	 * subjects can share the directory. The files are deleted by {@link #dispose()}.
+	 */
+	public static <T> OffHeapReplaySubject<T> createMapped(ItemCodec<T> codec, File directory) {
+		return createMapped(codec, directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public static <T> OffHeapReplaySubject<T> createMapped(ItemCodec<T> codec, File directory, int segmentSize) {
+		List<Path> files = new CopyOnWriteArrayList<>();
+		SegmentAllocator allocator = size -> {
+			try {
+				Path file = Files.createTempFile(directory.toPath(), "segment-", ".dat");
+				files.add(file);
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+					// The mapping stays valid after the channel is closed
+					return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+		Action0 deleteFiles = () -> {
+			for (Path file : files) {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			files.clear();
+		};
+		return new OffHeapReplaySubject<>(new Buffer<>(codec, segmentSize, allocator, deleteFiles));
+	}
+
+	private OffHeapReplaySubject(Buffer<T> buffer) {
+		super(child -> {
+			Segment head = buffer.head;
+			if (head == null) {
+				child.onError(new IllegalStateException("The subject has been disposed"));
+				return;
+			}
+			Cursor<T> cursor = new Cursor<>(child, head);
+			if (buffer.subscribers.add(cursor)) {
+				child.add(Subscriptions.create(() -> buffer.subscribers.remove(cursor)));
+			}
+			buffer.drain(cursor);
+		});
+		this.buffer = buffer;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the encoded value doesn't fit in a segment
+	 */
+	@Override
+	public void onNext(T t) {
+		if (!buffer.done) {
+			buffer.add(t);
+			buffer.subscribers.forEach(buffer.drainAction);
+		}
+	}
+
+	@Override
+	public void onError(Throwable e) {
+		if (!buffer.done) {
+			buffer.error = e;
+			buffer.done = true;
+			buffer.subscribers.terminate(buffer.drainAction);
+		}
+	}
+
+	@Override
+	public void onCompleted() {
+		if (!buffer.done) {
+			buffer.done = true;
+			buffer.subscribers.terminate(buffer.drainAction);
+		}
+	}
+
+	@Override
+	public boolean hasObservers() {
+		return buffer.subscribers.size() > 0;
+	}
+
+	public long size() {
+		return buffer.count;
+	}
+
+	/**
+	 * Releases the history, and deletes its files if it has any. The
+	 * subject stops accepting values, current subscribers are unsubscribed
+	 * without a terminal event, and later ones receive an
+	 * IllegalStateException.
+	 */
+	public void dispose() {
+		buffer.dispose();
+	}
+
+	private interface SegmentAllocator {
+		ByteBuffer allocate(int size);
+	}
+
+	private static final class Segment {
+		final ByteBuffer buffer;
+		Segment next;
+
+		Segment(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+	}
+
+	private static final class Cursor<T> extends AtomicInteger {
+		private static final long serialVersionUID = 1L;
+
+		final Subscriber<? super T> child;
+		Segment segment;
+		// This subscriber's own view of the segment
+		ByteBuffer view;
+		int offset;
+		long index;
+
+		Cursor(Subscriber<? super T> child, Segment segment) {
+			this.child = child;
+			this.segment = segment;
+			this.view = segment.buffer.duplicate();
+		}
+	}
+
+	private static final class Buffer<T> {
+		final SubscriberArray<Cursor<T>> subscribers = new SubscriberArray<>();
+		final Action1<Cursor<T>> drainAction = this::drain;
+		final ItemCodec<T> codec;
+		final int segmentSize;
+		final SegmentAllocator allocator;
+		final Action0 release;
+		// Null once disposed
+		volatile Segment head;
+
+		// Guarded by this, so that dispose can drop it. Null once disposed.
+		Segment tail;
+
+		// Records and links are written before count, so that readers
+		// who see the new count also see everything before it.
+		volatile long count;
+		volatile boolean done;
+		volatile Throwable error;
+
+		Buffer(ItemCodec<T> codec, int segmentSize, SegmentAllocator allocator, Action0 release) {
+			this.codec = codec;
+			this.segmentSize = segmentSize;
+			this.allocator = allocator;
+			this.release = release;
+			this.head = this.tail = new Segment(allocator.allocate(segmentSize));
+		}
+
+		synchronized void dispose() {
+			if (head == null) {
+				return;
+			}
+			head = null;
+			tail = null;
+			done = true;
+			subscribers.terminate(cursor -> cursor.child.unsubscribe());
+			release.call();
+		}
+
+		synchronized void add(T value) {
+			if (tail == null) {
+				return;
+			}
+			int size = codec.size(value);
+			if (size + 4 > segmentSize) {
+				throw new IllegalArgumentException("A value of " + size + " bytes doesn't fit in segments of " + segmentSize);
+			}
+			ByteBuffer b = tail.buffer;
+			if (b.remaining() < size + 4) {
+				if (b.remaining() >= 4) {
+					b.putInt(END_OF_SEGMENT);
+				}
+				Segment s = new Segment(allocator.allocate(segmentSize));
+				tail.next = s;
+				tail = s;
+				b = s.buffer;
+			}
+			int start = b.position();
+			b.putInt(size);
+			codec.encode(value, b);
+			if (b.position() != start + 4 + size) {
+				throw new IllegalStateException("The codec wrote " + (b.position() - start - 4) + " bytes instead of " + size);
+			}
+			count = count + 1;
+		}
+
+		void drain(Cursor<T> cursor) {
+			if (cursor.getAndIncrement() != 0) {
+				return;
+			}
+			Subscriber<? super T> child = cursor.child;
+			int missed = 1;
+			for (;;) {
+				boolean d = done;
+				long c = count;
+
+				ByteBuffer view = cursor.view;
+				int offset = cursor.offset;
+				long index = cursor.index;
+				while (index != c) {
+					if (child.isUnsubscribed()) {
+						return;
+					}
+					if (offset + 4 > segmentSize || view.getInt(offset) == END_OF_SEGMENT) {
+						cursor.segment = cursor.segment.next;
+						view = cursor.view = cursor.segment.buffer.duplicate();
+						offset = 0;
+					}
+					int size = view.getInt(offset);
+					view.limit(offset + 4 + size).position(offset + 4);
+					T v = codec.decode(view);
+					view.limit(segmentSize);
+					offset += 4 + size;
+					index++;
+					child.onNext(v);
+				}
+				cursor.offset = offset;
+				cursor.index = index;
+
+				if (d) {
+					cursor.segment = null;
+					cursor.view = null;
+					Throwable e = error;
+					if (e != null) {
+						child.onError(e);
+					} else {
+						child.onCompleted();
+					}
+					return;
+				}
+
+				missed = cursor.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+
+}
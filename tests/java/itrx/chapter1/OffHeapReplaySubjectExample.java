@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import rx.observers.TestSubscriber;
+
+public class OffHeapReplaySubjectExample {
+
+	public void exampleEarlyLate() {
+		OffHeapReplaySubject<String> s = OffHeapReplaySubject.create(ItemCodec.UTF8);
+		s.subscribe(v -> System.out.println("Early:" + v));
+		s.onNext("a");
+		s.onNext("b");
+		s.subscribe(v -> System.out.println("Late: " + v));
+		s.onNext("c");
+
+		// Early:a
+		// Early:b
+		// Late: a
+		// Late: b
+		// Early:c
+		// Late: c
+	}
+
+
+	//
+	// Test
+	//
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testEarlyLate() {
+		TestSubscriber<String> tester = new TestSubscriber<String>();
+
+		OffHeapReplaySubject<String> s = OffHeapReplaySubject.create(ItemCodec.UTF8);
+		s.subscribe(tester);
+		s.onNext("a");
+		s.onNext("b");
+		s.subscribe(tester);
+		s.onNext("c");
+
+		tester.assertReceivedOnNext(Arrays.asList("a", "b", "a", "b", "c", "c"));
+	}
+
+	@Test
+	public void testMapped() throws Exception {
+		TestSubscriber<Long> early = new TestSubscriber<Long>();
+		TestSubscriber<Long> late = new TestSubscriber<Long>();
+		File directory = folder.newFolder();
+
+		// Each segment holds 10 values
+		OffHeapReplaySubject<Long> s = OffHeapReplaySubject.createMapped(ItemCodec.LONG, directory, 120);
+		s.subscribe(early);
+		List<Long> expected = new ArrayList<>();
+		for (long i = 0 ; i < 95 ; i++) {
+			s.onNext(i);
+			expected.add(i);
+		}
+		s.subscribe(late);
+		s.onCompleted();
+
+		early.assertReceivedOnNext(expected);
+		late.assertReceivedOnNext(expected);
+		late.assertTerminalEvent();
+		assertEquals(10, directory.listFiles().length);
+	}
+
+	@Test
+	public void testMappedSharedDirectory() throws Exception {
+		TestSubscriber<Long> first = new TestSubscriber<Long>();
+		TestSubscriber<Long> second = new TestSubscriber<Long>();
+		File directory = folder.newFolder();
+
+		OffHeapReplaySubject<Long> s1 = OffHeapReplaySubject.createMapped(ItemCodec.LONG, directory, 120);
+		OffHeapReplaySubject<Long> s2 = OffHeapReplaySubject.createMapped(ItemCodec.LONG, directory, 120);
+		for (long i = 0 ; i < 15 ; i++) {
+			s1.onNext(i);
+			s2.onNext(-i);
+		}
+		assertEquals(4, directory.listFiles().length);
+
+		// As after a restart: the files of s1 are gone, s2's remain
+		s1.dispose();
+		assertEquals(2, directory.listFiles().length);
+		OffHeapReplaySubject<Long> s3 = OffHeapReplaySubject.createMapped(ItemCodec.LONG, directory, 120);
+		s3.onNext(42L);
+		s3.subscribe(first);
+		s2.subscribe(second);
+
+		first.assertReceivedOnNext(Arrays.asList(42L));
+		assertEquals(15, second.getOnNextEvents().size());
+		s2.dispose();
+		s3.dispose();
+		assertEquals(0, directory.listFiles().length);
+	}
+
+	@Test
+	public void testDispose() {
+		TestSubscriber<String> early = new TestSubscriber<String>();
+		TestSubscriber<String> late = new TestSubscriber<String>();
+
+		OffHeapReplaySubject<String> s = OffHeapReplaySubject.create(ItemCodec.UTF8);
+		s.subscribe(early);
+		s.onNext("a");
+		s.dispose();
+		s.onNext("b");
+		s.subscribe(late);
+
+		early.assertReceivedOnNext(Arrays.asList("a"));
+		assertTrue(early.isUnsubscribed());
+		assertEquals(0, early.getOnCompletedEvents().size());
+		assertEquals(1, late.getOnErrorEvents().size());
+		assertTrue(late.getOnErrorEvents().get(0) instanceof IllegalStateException);
+		assertFalse(s.hasObservers());
+	}
+
+	@Test
+	public void testSegmentBoundaries() {
+		TestSubscriber<String> tester = new TestSubscriber<String>();
+
+		// Values of uneven size leave unused space at the end of segments
+		OffHeapReplaySubject<String> s = OffHeapReplaySubject.create(ItemCodec.UTF8, 16);
+		List<String> expected = Arrays.asList("", "a", "bb", "ccc", "dddd", "eeeeeeeeeee", "ffffff", "g");
+		for (String v : expected)
+			s.onNext(v);
+		s.subscribe(tester);
+
+		tester.assertReceivedOnNext(expected);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() {
+		OffHeapReplaySubject<String> s = OffHeapReplaySubject.create(ItemCodec.UTF8, 16);
+		s.onNext("this is more than 12 bytes");
+	}
+
+}
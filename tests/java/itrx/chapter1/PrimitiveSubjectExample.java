@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import itrx.chapter1.primitive.DoubleBehaviorSubject;
+import itrx.chapter1.primitive.DoubleReplaySubject;
+import itrx.chapter1.primitive.IntReplaySubject;
+import itrx.chapter1.primitive.LongBehaviorSubject;
+import itrx.chapter1.primitive.LongObserver;
+import itrx.chapter1.primitive.LongPublishSubject;
+import itrx.chapter1.primitive.LongReplaySubject;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.ReplaySubject;
+
+public class PrimitiveSubjectExample {
+
+	public void examplePublish() {
+		LongPublishSubject subject = LongPublishSubject.create();
+		subject.onNext(1);
+		subject.subscribe(v -> System.out.println(v));
+		subject.onNext(2);
+		subject.onNext(3);
+		subject.onNext(4);
+
+		// 2
+		// 3
+		// 4
+	}
+
+	public void exampleBehaviorLate() {
+		LongBehaviorSubject s = LongBehaviorSubject.create();
+		s.onNext(0);
+		s.onNext(1);
+		s.onNext(2);
+		s.subscribe(v -> System.out.println("Late: " + v));
+		s.onNext(3);
+
+		// Late: 2
+		// Late: 3
+	}
+
+	public void exampleReplayWithSize() {
+		LongReplaySubject s = LongReplaySubject.createWithSize(2);
+		s.onNext(0);
+		s.onNext(1);
+		s.onNext(2);
+		s.subscribe(v -> System.out.println("Late: " + v));
+		s.onNext(3);
+
+		// Late: 1
+		// Late: 2
+		// Late: 3
+	}
+
+	public void exampleInterop() {
+		LongReplaySubject s = LongReplaySubject.create();
+		Observable.interval(100, TimeUnit.MILLISECONDS)
+			.take(3)
+			.subscribe(s::onNext, s::onError, s::onCompleted);
+
+		// Boxing only happens here
+		s.asObservable()
+			.subscribe(v -> System.out.println("Boxed: " + v));
+	}
+
+
+	//
+	// Tests
+	//
+
+	/**
+	 * Collects the values it receives without boxing them
+	 */
+	private static class LongCollector implements LongObserver {
+		long[] values = new long[0];
+		boolean completed;
+
+		@Override
+		public void onNext(long value) {
+			values = Arrays.copyOf(values, values.length + 1);
+			values[values.length - 1] = value;
+		}
+
+		@Override
+		public void onError(Throwable e) {
+		}
+
+		@Override
+		public void onCompleted() {
+			completed = true;
+		}
+	}
+
+	@Test
+	public void testPublish() {
+		LongCollector collector = new LongCollector();
+
+		LongPublishSubject subject = LongPublishSubject.create();
+		subject.onNext(1);
+		subject.subscribe(collector);
+		subject.onNext(2);
+		subject.onNext(3);
+		subject.onNext(4);
+
+		assertArrayEquals(new long[] {2,3,4}, collector.values);
+	}
+
+	@Test
+	public void testBehaviorLate() {
+		TestSubscriber<Long> tester = new TestSubscriber<Long>();
+
+		LongBehaviorSubject s = LongBehaviorSubject.create();
+		s.onNext(0);
+		s.onNext(1);
+		s.onNext(2);
+		s.asObservable().subscribe(tester);
+		s.onNext(3);
+
+		tester.assertReceivedOnNext(Arrays.asList(2L,3L));
+	}
+
+	@Test
+	public void testBehaviorCompleted() {
+		LongCollector collector = new LongCollector();
+
+		LongBehaviorSubject s = LongBehaviorSubject.create();
+		s.onNext(0);
+		s.onNext(1);
+		s.onNext(2);
+		s.onCompleted();
+		s.subscribe(collector);
+
+		assertArrayEquals(new long[0], collector.values);
+		assertEquals(true, collector.completed);
+	}
+
+	@Test
+	public void testBehaviorInitialValue() {
+		TestSubscriber<Double> tester = new TestSubscriber<Double>();
+
+		DoubleBehaviorSubject s = DoubleBehaviorSubject.create(0.5);
+		s.asObservable().subscribe(tester);
+		s.onNext(1.5);
+
+		tester.assertReceivedOnNext(Arrays.asList(0.5,1.5));
+	}
+
+	@Test
+	public void testReplayEarlyLate() {
+		LongCollector early = new LongCollector();
+		LongCollector late = new LongCollector();
+
+		LongReplaySubject s = LongReplaySubject.create();
+		s.subscribe(early);
+		s.onNext(0);
+		s.onNext(1);
+		s.subscribe(late);
+		s.onNext(2);
+
+		assertArrayEquals(new long[] {0,1,2}, early.values);
+		assertArrayEquals(new long[] {0,1,2}, late.values);
+	}
+
+	@Test
+	public void testReplayWithSize() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+
+		IntReplaySubject s = IntReplaySubject.createWithSize(2);
+		for (int i = 0 ; i < 100 ; i++)
+			s.onNext(i);
+		s.asObservable().subscribe(tester);
+		s.onNext(100);
+		s.onCompleted();
+
+		tester.assertReceivedOnNext(Arrays.asList(98,99,100));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testReplayWithTime() {
+		TestSubscriber<Long> tester = new TestSubscriber<Long>();
+		TestScheduler scheduler = Schedulers.test();
+
+		LongReplaySubject s = LongReplaySubject.createWithTime(150, TimeUnit.MILLISECONDS, scheduler);
+		s.onNext(0);
+		scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+		s.onNext(1);
+		scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+		s.onNext(2);
+		s.asObservable().subscribe(tester);
+		s.onNext(3);
+
+		tester.assertReceivedOnNext(Arrays.asList(1L,2L,3L));
+	}
+
+	@Test
+	public void testReplayWithTimeSameAsReplaySubject() {
+		TestScheduler scheduler = Schedulers.test();
+		Random random = new Random(5);
+
+		LongReplaySubject s = LongReplaySubject.createWithTime(100, TimeUnit.MILLISECONDS, scheduler);
+		ReplaySubject<Long> expected = ReplaySubject.createWithTime(100, TimeUnit.MILLISECONDS, scheduler);
+		for (int i = 0 ; i < 1000 ; i++) {
+			// Bursts of values, then quiet periods of up to 3 windows
+			int burst = random.nextInt(200);
+			for (int j = 0 ; j < burst ; j++) {
+				s.onNext(i * 1000 + j);
+				expected.onNext((long) i * 1000 + j);
+				scheduler.advanceTimeBy(random.nextInt(2), TimeUnit.MILLISECONDS);
+			}
+			scheduler.advanceTimeBy(random.nextInt(300), TimeUnit.MILLISECONDS);
+
+			LongCollector actual = new LongCollector();
+			TestSubscriber<Long> expectedTester = new TestSubscriber<Long>();
+			s.subscribe(actual).unsubscribe();
+			expected.subscribe(expectedTester);
+			expectedTester.unsubscribe();
+			long[] expectedValues = new long[expectedTester.getOnNextEvents().size()];
+			for (int j = 0 ; j < expectedValues.length ; j++)
+				expectedValues[j] = expectedTester.getOnNextEvents().get(j);
+			assertArrayEquals(expectedValues, actual.values);
+		}
+	}
+
+	@Test
+	public void testReplayWithTimeAfterQuietPeriod() {
+		TestScheduler scheduler = Schedulers.test();
+
+		DoubleReplaySubject s = DoubleReplaySubject.createWithTime(100, TimeUnit.MILLISECONDS, scheduler);
+		for (int i = 0 ; i < 1000000 ; i++)
+			s.onNext(i);
+		scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+		s.onNext(-1);
+
+		assertEquals(1, s.size());
+	}
+
+}
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subjects.Subject;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A BehaviorSubject for very many subscribers. The subscribers are split
+ * across shards and every shard delivers to its own subscribers on its own
+ * scheduler worker, so the producer only pays for handing each value to
+ * the shards.
+ * <p>
+ * The latest value is also kept in a single volatile slot. Subscribers
+ * join their shard through its queue, which places them correctly between
+ * the values that are still being delivered.
+ *
+ * @param <T> The type of the values
+ */
+public final class ShardedBehaviorSubject<T> extends Subject<T, T> {
+
+	private static final Object EMPTY = new Object();
+	private static final Object NULL = new Object();
+
+	private final State<T> state;
+
+	public static <T> ShardedBehaviorSubject<T> create(int shards, Scheduler scheduler) {
+		return new ShardedBehaviorSubject<>(new State<T>(EMPTY, shards, scheduler));
+	}
+
+	public static <T> ShardedBehaviorSubject<T> create(T defaultValue, int shards, Scheduler scheduler) {
+		return new ShardedBehaviorSubject<>(new State<T>(wrap(defaultValue), shards, scheduler));
+	}
+
+	private ShardedBehaviorSubject(State<T> state) {
+		super(child -> {
+			Terminal terminal = state.terminal;
+			if (terminal != null) {
+				terminal.emit(child);
+				return;
+			}
+			state.subscriberCount.incrementAndGet();
+			child.add(Subscriptions.create(state.subscriberCount::decrementAndGet));
+			int index = (state.nextShard.getAndIncrement() & Integer.MAX_VALUE) % state.shards.length;
+			state.shards[index].offer(new Join<T>(child));
+		});
+		this.state = state;
+	}
+
+	@Override
+	public void onNext(T t) {
+		if (state.terminal == null) {
+			Object o = wrap(t);
+			state.value = o;
+			for (Shard<T> shard : state.shards) {
+				shard.offer(o);
+			}
+		}
+	}
+
+	@Override
+	public void onError(Throwable e) {
+		terminate(new Terminal(e));
+	}
+
+	@Override
+	public void onCompleted() {
+		terminate(new Terminal(null));
+	}
+
+	private void terminate(Terminal terminal) {
+		if (state.terminal == null) {
+			state.terminal = terminal;
+			for (Shard<T> shard : state.shards) {
+				shard.offer(terminal);
+			}
+		}
+	}
+
+	@Override
+	public boolean hasObservers() {
+		return state.subscriberCount.get() > 0;
+	}
+
+	public boolean hasValue() {
+		return state.value != EMPTY;
+	}
+
+	public T getValue() {
+		Object o = state.value;
+		return o == EMPTY ? null : unwrap(o);
+	}
+
+	private static Object wrap(Object value) {
+		return value == null ? NULL : value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T unwrap(Object o) {
+		return o == NULL ? null : (T) o;
+	}
+
+	private static final class State<T> {
+		final Shard<T>[] shards;
+		final AtomicInteger nextShard = new AtomicInteger();
+		final AtomicInteger subscriberCount = new AtomicInteger();
+		volatile Object value;
+		volatile Terminal terminal;
+
+		@SuppressWarnings("unchecked")
+		State(Object initial, int shardCount, Scheduler scheduler) {
+			if (shardCount <= 0) {
+				throw new IllegalArgumentException("shards > 0 required but it was " + shardCount);
+			}
+			value = initial;
+			shards = (Shard<T>[]) new Shard<?>[shardCount];
+			for (int i = 0 ; i < shardCount ; i++) {
+				shards[i] = new Shard<>(initial, scheduler.createWorker());
+			}
+		}
+	}
+
+	private static final class Join<T> {
+		final Subscriber<? super T> child;
+
+		Join(Subscriber<? super T> child) {
+			this.child = child;
+		}
+	}
+
+	private static final class Terminal {
+		final Throwable error;
+
+		Terminal(Throwable error) {
+			this.error = error;
+		}
+
+		void emit(Subscriber<?> child) {
+			if (error != null) {
+				child.onError(error);
+			} else {
+				child.onCompleted();
+			}
+		}
+	}
+
+	private static final class Shard<T> extends AtomicInteger implements Action0 {
+		private static final long serialVersionUID = 1L;
+
+		final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+		final Scheduler.Worker worker;
+
+		// Only touched while draining
+		final List<Subscriber<? super T>> subscribers = new ArrayList<>();
+		Object last;
+		volatile Terminal terminal;
+
+		Shard(Object initial, Scheduler.Worker worker) {
+			this.last = initial;
+			this.worker = worker;
+		}
+
+		void offer(Object event) {
+			queue.offer(event);
+			if (getAndIncrement() == 0) {
+				if (terminal != null) {
+					// The worker is gone. Whoever joins this late only
+					// gets the terminal event, so deliver it here.
+					call();
+				} else {
+					worker.schedule(this);
+				}
+			}
+		}
+
+		@Override
+		public void call() {
+			int missed = 1;
+			for (;;) {
+				Object event;
+				while ((event = queue.poll()) != null) {
+					if (event instanceof Join) {
+						@SuppressWarnings("unchecked")
+						Join<T> join = (Join<T>) event;
+						join(join.child);
+					} else if (event instanceof Terminal) {
+						terminal = (Terminal) event;
+						for (Subscriber<? super T> s : subscribers) {
+							terminal.emit(s);
+						}
+						subscribers.clear();
+					} else {
+						last = event;
+						emit(unwrap(event));
+					}
+				}
+				missed = addAndGet(-missed);
+				if (missed == 0) {
+					if (terminal != null) {
+						// Last, as it may interrupt this thread
+						worker.unsubscribe();
+					}
+					return;
+				}
+			}
+		}
+
+		private void join(Subscriber<? super T> child) {
+			if (terminal != null) {
+				terminal.emit(child);
+			} else if (!child.isUnsubscribed()) {
+				subscribers.add(child);
+				if (last != EMPTY) {
+					child.onNext(unwrap(last));
+				}
+			}
+		}
+
+		private void emit(T value) {
+			for (int i = 0 ; i < subscribers.size() ; ) {
+				Subscriber<? super T> s = subscribers.get(i);
+				if (s.isUnsubscribed()) {
+					// Removing out of order is fine: each subscriber
+					// only cares about the order of its own values
+					int lastIndex = subscribers.size() - 1;
+					subscribers.set(i, subscribers.get(lastIndex));
+					subscribers.remove(lastIndex);
+				} else {
+					s.onNext(value);
+					i++;
+				}
+			}
+		}
+	}
+
+}
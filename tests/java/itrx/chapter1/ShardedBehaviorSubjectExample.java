@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+public class ShardedBehaviorSubjectExample {
+
+	public void exampleLate() throws InterruptedException {
+		ShardedBehaviorSubject<Integer> s = ShardedBehaviorSubject.create(4, Schedulers.computation());
+		s.onNext(0);
+		s.onNext(1);
+		s.onNext(2);
+		s.subscribe(v -> System.out.println("Late: " + v));
+		s.onNext(3);
+		Thread.sleep(100);
+
+		// Late: 2
+		// Late: 3
+	}
+
+	public void exampleFanOut() throws InterruptedException {
+		ShardedBehaviorSubject<Integer> s = ShardedBehaviorSubject.create(0, 4, Schedulers.computation());
+		for (int i = 0 ; i < 4 ; i++) {
+			int subscriber = i;
+			s.subscribe(v -> System.out.println(subscriber + " received " + v
+					+ " on " + Thread.currentThread().getName()));
+		}
+		s.onNext(1);
+		Thread.sleep(100);
+
+		// 0 received 0 on RxComputationThreadPool-1
+		// 1 received 0 on RxComputationThreadPool-2
+		// 2 received 0 on RxComputationThreadPool-3
+		// 3 received 0 on RxComputationThreadPool-4
+		// 0 received 1 on RxComputationThreadPool-1
+		// 1 received 1 on RxComputationThreadPool-2
+		// 2 received 1 on RxComputationThreadPool-3
+		// 3 received 1 on RxComputationThreadPool-4
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testLate() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		ShardedBehaviorSubject<Integer> s = ShardedBehaviorSubject.create(4, scheduler);
+		s.onNext(0);
+		s.onNext(1);
+		s.onNext(2);
+		s.subscribe(tester);
+		s.onNext(3);
+		scheduler.triggerActions();
+
+		tester.assertReceivedOnNext(Arrays.asList(2,3));
+		assertEquals(Integer.valueOf(3), s.getValue());
+	}
+
+	@Test
+	public void testFanOut() {
+		TestScheduler scheduler = Schedulers.test();
+		List<TestSubscriber<Integer>> testers = new ArrayList<>();
+
+		ShardedBehaviorSubject<Integer> s = ShardedBehaviorSubject.create(0, 4, scheduler);
+		for (int i = 0 ; i < 10 ; i++) {
+			TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+			s.subscribe(tester);
+			testers.add(tester);
+		}
+		s.onNext(1);
+		s.onNext(2);
+		s.onCompleted();
+
+		for (TestSubscriber<Integer> tester : testers)
+			tester.assertReceivedOnNext(Arrays.asList());
+		scheduler.triggerActions();
+		for (TestSubscriber<Integer> tester : testers) {
+			tester.assertReceivedOnNext(Arrays.asList(0,1,2));
+			tester.assertTerminalEvent();
+			tester.assertNoErrors();
+		}
+	}
+
+	@Test
+	public void testCompleted() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		ShardedBehaviorSubject<Integer> s = ShardedBehaviorSubject.create(4, scheduler);
+		s.onNext(0);
+		s.onCompleted();
+		scheduler.triggerActions();
+		s.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList());
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testReleasesWorkers() {
+		TestScheduler scheduler = Schedulers.test();
+		List<Scheduler.Worker> workers = new ArrayList<>();
+		Scheduler recording = new Scheduler() {
+			@Override
+			public Worker createWorker() {
+				Worker worker = scheduler.createWorker();
+				workers.add(worker);
+				return worker;
+			}
+		};
+
+		ShardedBehaviorSubject<Integer> s = ShardedBehaviorSubject.create(0, 4, recording);
+		s.subscribe(new TestSubscriber<Integer>());
+		s.onNext(1);
+		s.onCompleted();
+		assertEquals(4, workers.size());
+		for (Scheduler.Worker worker : workers)
+			assertEquals(false, worker.isUnsubscribed());
+
+		scheduler.triggerActions();
+		for (Scheduler.Worker worker : workers)
+			assertEquals(true, worker.isUnsubscribed());
+	}
+
+	@Test
+	public void testUnsubscribe() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		ShardedBehaviorSubject<Integer> s = ShardedBehaviorSubject.create(0, 2, scheduler);
+		Subscription subscription = s.subscribe(tester);
+		scheduler.triggerActions();
+		subscription.unsubscribe();
+		s.onNext(1);
+		scheduler.triggerActions();
+
+		tester.assertReceivedOnNext(Arrays.asList(0));
+		assertEquals(false, s.hasObservers());
+	}
+
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import rx.functions.Action1;
+
+/**
+ * A subscriber registry for subjects whose subscribers come and go all the
+ * time. Subscribers are hashed into open-addressed slot tables, so adding
+ * and removing one is O(1) and doesn't copy anything. The tables are split
+ * in stripes that are modified under their own lock, while emitters iterate
+ * them without locking.
+ * <p>
+ * Removed subscribers leave a tombstone behind, which keeps probing correct.
+ * A stripe is rehashed once too many of its slots are tombstones.
+ *
+ * @param <S> The type of the subscribers
+ */
+public final class SlotTableRegistry<S> implements SubscriberRegistry<S> {
+
+	private static final Object TOMBSTONE = new Object();
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Stripe[] stripes;
+	private final int stripeMask;
+	private volatile boolean terminated;
+
+	public SlotTableRegistry() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public SlotTableRegistry(int concurrency) {
+		int n = 1;
+		while (n < concurrency) {
+			n <<= 1;
+		}
+		stripes = new Stripe[n];
+		for (int i = 0 ; i < n ; i++) {
+			stripes[i] = new Stripe(this);
+		}
+		stripeMask = n - 1;
+	}
+
+	@Override
+	public boolean add(S s) {
+		int h = hash(s);
+		return stripes[h & stripeMask].add(s, h);
+	}
+
+	@Override
+	public void remove(S s) {
+		int h = hash(s);
+		stripes[h & stripeMask].remove(s, h);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(Action1<? super S> action) {
+		for (Stripe stripe : stripes) {
+			AtomicReferenceArray<Object> slots = stripe.slots;
+			for (int i = 0 ; i < slots.length() ; i++) {
+				Object o = slots.get(i);
+				if (o != null && o != TOMBSTONE) {
+					action.call((S) o);
+				}
+			}
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void terminate(Action1<? super S> action) {
+		terminated = true;
+		// Stripes check the flag under their lock, so no subscriber can
+		// be added behind our back once we have emptied a stripe
+		List<Object> remaining = new ArrayList<>();
+		for (Stripe stripe : stripes) {
+			stripe.drainTo(remaining);
+		}
+		for (Object o : remaining) {
+			action.call((S) o);
+		}
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return terminated;
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.live;
+		}
+		return size;
+	}
+
+	private static int hash(Object s) {
+		int h = System.identityHashCode(s) * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static final class Stripe {
+		final SlotTableRegistry<?> owner;
+		volatile AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+		// Guarded by this
+		int used;
+		volatile int live;
+
+		Stripe(SlotTableRegistry<?> owner) {
+			this.owner = owner;
+		}
+
+		synchronized boolean add(Object s, int h) {
+			if (owner.terminated) {
+				return false;
+			}
+			AtomicReferenceArray<Object> table = slots;
+			if ((used + 1) * 4 > table.length() * 3) {
+				// Grow if the live subscribers need it, otherwise
+				// reclaiming the tombstones is enough
+				int capacity = (live + 1) * 2 > table.length() ? table.length() * 2 : table.length();
+				table = rehash(capacity);
+			}
+			int mask = table.length() - 1;
+			for (int i = (h >>> 8) & mask ; ; i = (i + 1) & mask) {
+				Object o = table.get(i);
+				if (o == null) {
+					used++;
+					table.set(i, s);
+					break;
+				}
+				if (o == TOMBSTONE) {
+					table.set(i, s);
+					break;
+				}
+			}
+			live++;
+			return true;
+		}
+
+		synchronized void remove(Object s, int h) {
+			AtomicReferenceArray<Object> table = slots;
+			int mask = table.length() - 1;
+			for (int i = (h >>> 8) & mask ; ; i = (i + 1) & mask) {
+				Object o = table.get(i);
+				if (o == null) {
+					return;
+				}
+				if (o == s) {
+					table.set(i, TOMBSTONE);
+					live--;
+					break;
+				}
+			}
+			if ((used - live) * 4 > table.length()) {
+				rehash(table.length());
+			}
+		}
+
+		synchronized void drainTo(List<Object> remaining) {
+			AtomicReferenceArray<Object> table = slots;
+			for (int i = 0 ; i < table.length() ; i++) {
+				Object o = table.get(i);
+				if (o != null && o != TOMBSTONE) {
+					remaining.add(o);
+				}
+			}
+			slots = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+			used = 0;
+			live = 0;
+		}
+
+		private AtomicReferenceArray<Object> rehash(int capacity) {
+			AtomicReferenceArray<Object> table = slots;
+			AtomicReferenceArray<Object> next = new AtomicReferenceArray<>(capacity);
+			int mask = capacity - 1;
+			for (int j = 0 ; j < table.length() ; j++) {
+				Object o = table.get(j);
+				if (o != null && o != TOMBSTONE) {
+					int i = (hash(o) >>> 8) & mask;
+					while (next.get(i) != null) {
+						i = (i + 1) & mask;
+					}
+					next.set(i, o);
+				}
+			}
+			used = live;
+			// Emitters already iterating the old table finish with it,
+			// just like with a copy-on-write array
+			slots = next;
+			return next;
+		}
+	}
+}
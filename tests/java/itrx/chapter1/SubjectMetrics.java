@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+/**
+ * A snapshot of the metrics of an {@link InstrumentedSubject}
+ */
+public final class SubjectMetrics {
+
+	public final long emitted;
+	public final int subscribers;
+	public final int bufferSize;
+	public final long fanOutP50Nanos;
+	public final long fanOutP99Nanos;
+	public final long fanOutMaxNanos;
+
+	SubjectMetrics(long emitted, int subscribers, int bufferSize,
+			long fanOutP50Nanos, long fanOutP99Nanos, long fanOutMaxNanos) {
+		this.emitted = emitted;
+		this.subscribers = subscribers;
+		this.bufferSize = bufferSize;
+		this.fanOutP50Nanos = fanOutP50Nanos;
+		this.fanOutP99Nanos = fanOutP99Nanos;
+		this.fanOutMaxNanos = fanOutMaxNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "emitted=" + emitted
+				+ " subscribers=" + subscribers
+				+ " buffer=" + bufferSize
+				+ " fanout(p50=" + fanOutP50Nanos + "ns p99=" + fanOutP99Nanos + "ns max=" + fanOutMaxNanos + "ns)";
+	}
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.functions.Action1;
+
+/**
+ * A copy-on-write array of subscribers. Adding or removing a subscriber
+ * replaces the array, so emitters can iterate a snapshot without ever
+ * blocking on subscribers coming and going.
+ *
+ * @param <S> The type of the subscribers
+ */
+public final class SubscriberArray<S> implements SubscriberRegistry<S> {
+	
+	private static final Object[] EMPTY = new Object[0];
+	private static final Object[] TERMINATED = new Object[0];
+	
+	private final AtomicReference<Object[]> subscribers = new AtomicReference<>(EMPTY);
+	
+	@Override
+	public boolean add(S s) {
+		for (;;) {
+			Object[] current = subscribers.get();
+			if (current == TERMINATED) {
+				return false;
+			}
+			Object[] next = new Object[current.length + 1];
+			System.arraycopy(current, 0, next, 0, current.length);
+			next[current.length] = s;
+			if (subscribers.compareAndSet(current, next)) {
+				return true;
+			}
+		}
+	}
+	
+	@Override
+	public void remove(S s) {
+		for (;;) {
+			Object[] current = subscribers.get();
+			int index = -1;
+			for (int i = 0 ; i < current.length ; i++) {
+				if (current[i] == s) {
+					index = i;
+					break;
+				}
+			}
+			if (index < 0) {
+				return;
+			}
+			Object[] next;
+			if (current.length == 1) {
+				next = EMPTY;
+			} else {
+				next = new Object[current.length - 1];
+				System.arraycopy(current, 0, next, 0, index);
+				System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+			}
+			if (subscribers.compareAndSet(current, next)) {
+				return;
+			}
+		}
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(Action1<? super S> action) {
+		for (Object s : subscribers.get()) {
+			action.call((S) s);
+		}
+	}
+	
+	/**
+	 * The current subscribers, for emitters that cannot afford a callback
+	 * per value. The array must not be modified.
+	 */
+	public Object[] snapshot() {
+		return subscribers.get();
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public void terminate(Action1<? super S> action) {
+		for (Object s : subscribers.getAndSet(TERMINATED)) {
+			action.call((S) s);
+		}
+	}
+	
+	@Override
+	public boolean isTerminated() {
+		return subscribers.get() == TERMINATED;
+	}
+	
+	@Override
+	public int size() {
+		return subscribers.get().length;
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import rx.functions.Action1;
+
+/**
+ * Where a subject keeps its subscribers. Emitters iterate the registry
+ * while subscribers come and go, so implementations must allow
+ * {@link #forEach(Action1)} to run concurrently with {@link #add(Object)}
+ * and {@link #remove(Object)}.
+ *
+ * @param <S> The type of the subscribers
+ */
+public interface SubscriberRegistry<S> {
+
+	/**
+	 * Adds a subscriber.
+	 * @return false if the registry has already been terminated
+	 */
+	boolean add(S s);
+
+	void remove(S s);
+
+	void forEach(Action1<? super S> action);
+
+	/**
+	 * Rejects any further subscribers and hands the remaining ones
+	 * to the action for the last time.
+	 */
+	void terminate(Action1<? super S> action);
+
+	boolean isTerminated();
+
+	int size();
+}
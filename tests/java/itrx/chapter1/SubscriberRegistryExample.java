@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+
+public class SubscriberRegistryExample {
+
+	public void exampleIndependentSubscriptions() {
+		ConcurrentPublishSubject<Integer> values = ConcurrentPublishSubject.create(new SlotTableRegistry<>());
+		Subscription subscription1 = values.subscribe(v -> System.out
+				.println("First: " + v));
+		values.subscribe(v -> System.out.println("Second: " + v));
+		values.onNext(0);
+		values.onNext(1);
+		subscription1.unsubscribe();
+		System.out.println("Unsubscribed first");
+		values.onNext(2);
+
+		// First: 0
+		// Second: 0
+		// First: 1
+		// Second: 1
+		// Unsubscribed first
+		// Second: 2
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testIndependentSubscriptions() {
+		TestSubscriber<Integer> tester1 = new TestSubscriber<Integer>();
+		TestSubscriber<Integer> tester2 = new TestSubscriber<Integer>();
+
+		ConcurrentPublishSubject<Integer> values = ConcurrentPublishSubject.create(new SlotTableRegistry<>());
+		Subscription subscription1 = values.subscribe(tester1);
+		Subscription subscription2 = values.subscribe(tester2);
+		values.onNext(0);
+		values.onNext(1);
+		subscription1.unsubscribe();
+		values.onNext(2);
+
+		tester1.assertReceivedOnNext(Arrays.asList(0, 1));
+		tester2.assertReceivedOnNext(Arrays.asList(0, 1, 2));
+		tester1.assertUnsubscribed();
+		assertFalse(tester2.isUnsubscribed());
+
+		subscription2.unsubscribe();
+		assertFalse(values.hasObservers());
+	}
+
+	@Test
+	public void testChurn() {
+		SlotTableRegistry<Object> registry = new SlotTableRegistry<>(4);
+		List<Object> live = new ArrayList<>();
+		for (int i = 0 ; i < 1000 ; i++) {
+			Object o = new Object();
+			registry.add(o);
+			live.add(o);
+		}
+		// Keep replacing subscribers, leaving tombstones behind
+		for (int i = 0 ; i < 100_000 ; i++) {
+			registry.remove(live.remove(0));
+			Object o = new Object();
+			registry.add(o);
+			live.add(o);
+		}
+
+		Set<Object> found = new HashSet<>();
+		registry.forEach(found::add);
+		assertEquals(1000, registry.size());
+		assertEquals(new HashSet<>(live), found);
+	}
+
+	@Test
+	public void testTerminate() {
+		SlotTableRegistry<Object> registry = new SlotTableRegistry<>();
+		registry.add("first");
+		registry.add("second");
+
+		Set<Object> remaining = new HashSet<>();
+		registry.terminate(remaining::add);
+
+		assertEquals(new HashSet<>(Arrays.asList("first", "second")), remaining);
+		assertFalse(registry.add("third"));
+		assertEquals(0, registry.size());
+	}
+
+}
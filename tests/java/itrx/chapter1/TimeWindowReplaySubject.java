@@ -0,0 +1,375 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.subjects.Subject;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A ReplaySubject that replays the values of the last time window.
+ * <p>
+ * Values and their timestamps are stored in separate columns, in chunks.
+ * Since timestamps only go forward, a late subscriber finds the first value
+ * of the window with a binary search. Expired chunks are released in
+ * batches on a periodic tick, rather than on every onNext. The tick starts
+ * with the first value and stops when the subject terminates or is
+ * unsubscribed, so that it holds no scheduler resources. A subject that is
+ * dropped without being terminated should be unsubscribed.
+ *
+ * @param <T> The type of the values
+ */
+public final class TimeWindowReplaySubject<T> extends Subject<T, T> implements Subscription {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	private static final Subscription STOPPED = Subscriptions.unsubscribed();
+
+	private final Buffer<T> buffer;
+	private final long evictionTick;
+	private final TimeUnit unit;
+	private final Scheduler scheduler;
+	// null until the first value, then the worker of the tick, then STOPPED
+	private final AtomicReference<Subscription> eviction = new AtomicReference<>();
+
+	/**
+	 * Creates a subject that replays the values of the last window, and
+	 * releases the expired ones once every window.
+	 */
+	public static <T> TimeWindowReplaySubject<T> create(long window, TimeUnit unit, Scheduler scheduler) {
+		return create(window, window, unit, scheduler);
+	}
+
+	public static <T> TimeWindowReplaySubject<T> create(long window, long evictionTick, TimeUnit unit, Scheduler scheduler) {
+		return create(window, evictionTick, unit, scheduler, DEFAULT_CHUNK_SIZE);
+	}
+
+	public static <T> TimeWindowReplaySubject<T> create(long window, long evictionTick, TimeUnit unit, Scheduler scheduler, int chunkSize) {
+		Buffer<T> buffer = new Buffer<>(unit.toMillis(window), scheduler, chunkSize);
+		return new TimeWindowReplaySubject<>(buffer, evictionTick, unit, scheduler);
+	}
+
+	private TimeWindowReplaySubject(Buffer<T> buffer, long evictionTick, TimeUnit unit, Scheduler scheduler) {
+		super(child -> {
+			Cursor<T> cursor = buffer.cursor(child);
+			if (buffer.subscribers.add(cursor)) {
+				child.add(Subscriptions.create(() -> buffer.subscribers.remove(cursor)));
+			}
+			buffer.drain(cursor);
+		});
+		this.buffer = buffer;
+		this.evictionTick = evictionTick;
+		this.unit = unit;
+		this.scheduler = scheduler;
+	}
+
+	private void startEviction() {
+		if (eviction.get() == null) {
+			Scheduler.Worker worker = scheduler.createWorker();
+			if (eviction.compareAndSet(null, worker)) {
+				worker.schedulePeriodically(buffer::evict, evictionTick, evictionTick, unit);
+			} else {
+				worker.unsubscribe();
+			}
+		}
+	}
+
+	private void stopEviction() {
+		Subscription s = eviction.getAndSet(STOPPED);
+		if (s != null) {
+			s.unsubscribe();
+		}
+	}
+
+	@Override
+	public void onNext(T t) {
+		if (!buffer.done) {
+			startEviction();
+			buffer.add(t);
+			buffer.subscribers.forEach(buffer.drainAction);
+		}
+	}
+
+	@Override
+	public void onError(Throwable e) {
+		if (!buffer.done) {
+			buffer.error = e;
+			buffer.done = true;
+			stopEviction();
+			buffer.subscribers.terminate(buffer.drainAction);
+		}
+	}
+
+	@Override
+	public void onCompleted() {
+		if (!buffer.done) {
+			buffer.done = true;
+			stopEviction();
+			buffer.subscribers.terminate(buffer.drainAction);
+		}
+	}
+
+	/**
+	 * Stops releasing expired values. Values that arrive afterwards are
+	 * still replayed, but are kept until the subject is dropped.
+	 */
+	@Override
+	public void unsubscribe() {
+		stopEviction();
+	}
+
+	@Override
+	public boolean isUnsubscribed() {
+		return eviction.get() == STOPPED;
+	}
+
+	@Override
+	public boolean hasObservers() {
+		return buffer.subscribers.size() > 0;
+	}
+
+	/**
+	 * @return The number of values that a subscriber would receive if it subscribed now
+	 */
+	public int size() {
+		return buffer.size();
+	}
+
+	/**
+	 * @return The number of values still held in memory, including expired
+	 * ones that haven't been evicted yet
+	 */
+	public int retained() {
+		return buffer.retained();
+	}
+
+	private static final class Chunk {
+		final Object[] values;
+		final long[] timestamps;
+		Chunk next;
+
+		Chunk(int size) {
+			values = new Object[size];
+			timestamps = new long[size];
+		}
+	}
+
+	private static final class Cursor<T> extends AtomicInteger {
+		private static final long serialVersionUID = 1L;
+
+		final Subscriber<? super T> child;
+		Chunk chunk;
+		int offset;
+		long index;
+
+		Cursor(Subscriber<? super T> child, Chunk chunk, int offset, long index) {
+			this.child = child;
+			this.chunk = chunk;
+			this.offset = offset;
+			this.index = index;
+		}
+	}
+
+	private static final class Buffer<T> {
+		final SubscriberArray<Cursor<T>> subscribers = new SubscriberArray<>();
+		final Action1<Cursor<T>> drainAction = this::drain;
+		final long windowMillis;
+		final Scheduler scheduler;
+		final int chunkSize;
+
+		// The chunks that may still hold values of the window, by position.
+		// directory[start] holds the value with absolute index base.
+		// Guarded by this.
+		Chunk[] directory = new Chunk[16];
+		int start;
+		int end;
+		long base;
+		long lastTimestamp = Long.MIN_VALUE;
+
+		// Only touched by the producer
+		int tailOffset;
+
+		volatile long count;
+		volatile boolean done;
+		volatile Throwable error;
+
+		Buffer(long windowMillis, Scheduler scheduler, int chunkSize) {
+			if (chunkSize <= 0) {
+				throw new IllegalArgumentException("chunkSize > 0 required but it was " + chunkSize);
+			}
+			this.windowMillis = windowMillis;
+			this.scheduler = scheduler;
+			this.chunkSize = chunkSize;
+			directory[end++] = new Chunk(chunkSize);
+		}
+
+		synchronized void add(T value) {
+			Chunk tail = directory[end - 1];
+			if (tailOffset == chunkSize) {
+				Chunk c = new Chunk(chunkSize);
+				tail.next = c;
+				appendToDirectory(c);
+				tail = c;
+				tailOffset = 0;
+			}
+			// The scheduler's clock may step back, but the index relies on
+			// timestamps that never do
+			long now = Math.max(scheduler.now(), lastTimestamp);
+			lastTimestamp = now;
+			tail.values[tailOffset] = value;
+			tail.timestamps[tailOffset] = now;
+			tailOffset++;
+			count = count + 1;
+		}
+
+		private void appendToDirectory(Chunk c) {
+			if (end == directory.length) {
+				int live = end - start;
+				Chunk[] next = live * 2 > directory.length ? new Chunk[directory.length * 2] : directory;
+				System.arraycopy(directory, start, next, 0, live);
+				if (next == directory) {
+					Arrays.fill(directory, live, end, null);
+				}
+				directory = next;
+				start = 0;
+				end = live;
+			}
+			directory[end++] = c;
+		}
+
+		private long timestamp(long index) {
+			long relative = index - base;
+			return directory[start + (int) (relative / chunkSize)].timestamps[(int) (relative % chunkSize)];
+		}
+
+		/**
+		 * @return The absolute index of the first value inside the window
+		 */
+		private long firstInWindow() {
+			long limit = scheduler.now() - windowMillis;
+			long low = base;
+			long high = count;
+			while (low < high) {
+				long mid = (low + high) >>> 1;
+				if (timestamp(mid) <= limit) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		synchronized Cursor<T> cursor(Subscriber<? super T> child) {
+			long first = firstInWindow();
+			long relative = first - base;
+			int position = (int) (relative / chunkSize);
+			int offset = (int) (relative % chunkSize);
+			if (start + position == end) {
+				// Everything has expired and the last chunk is full. The
+				// cursor rests at its end until the next chunk is linked.
+				position--;
+				offset = chunkSize;
+			}
+			return new Cursor<>(child, directory[start + position], offset, first);
+		}
+
+		synchronized int size() {
+			return (int) (count - firstInWindow());
+		}
+
+		synchronized int retained() {
+			return (int) (count - base);
+		}
+
+		/**
+		 * Releases the chunks that only hold expired values. Subscribers
+		 * that are still replaying them keep them alive until they're done.
+		 */
+		synchronized void evict() {
+			long first = firstInWindow();
+			while (end - start > 1 && first - base >= chunkSize) {
+				directory[start++] = null;
+				base += chunkSize;
+			}
+		}
+
+		void drain(Cursor<T> cursor) {
+			if (cursor.getAndIncrement() != 0) {
+				return;
+			}
+			Subscriber<? super T> child = cursor.child;
+			int missed = 1;
+			for (;;) {
+				boolean d = done;
+				long c = count;
+
+				Chunk chunk = cursor.chunk;
+				int offset = cursor.offset;
+				long index = cursor.index;
+				while (index != c) {
+					if (child.isUnsubscribed()) {
+						return;
+					}
+					if (offset == chunkSize) {
+						chunk = chunk.next;
+						offset = 0;
+					}
+					@SuppressWarnings("unchecked")
+					T v = (T) chunk.values[offset];
+					child.onNext(v);
+					offset++;
+					index++;
+				}
+				cursor.chunk = chunk;
+				cursor.offset = offset;
+				cursor.index = index;
+
+				if (d) {
+					cursor.chunk = null;
+					Throwable e = error;
+					if (e != null) {
+						child.onError(e);
+					} else {
+						child.onCompleted();
+					}
+					return;
+				}
+
+				missed = cursor.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rx.Scheduler;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+public class TimeWindowReplaySubjectExample {
+
+	public void exampleWithTime() throws InterruptedException {
+		TimeWindowReplaySubject<Integer> s = TimeWindowReplaySubject.create(150, TimeUnit.MILLISECONDS, Schedulers.computation());
+		s.onNext(0);
+		Thread.sleep(100);
+		s.onNext(1);
+		Thread.sleep(100);
+		s.onNext(2);
+		s.subscribe(v -> System.out.println("Late: " + v));
+		s.onNext(3);
+
+		// Late: 1
+		// Late: 2
+		// Late: 3
+	}
+
+
+	//
+	// Test
+	//
+
+	@Test
+	public void testWithTime() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		TimeWindowReplaySubject<Integer> s = TimeWindowReplaySubject.create(150, TimeUnit.MILLISECONDS, scheduler);
+		s.onNext(0);
+		scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+		s.onNext(1);
+		scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+		s.onNext(2);
+		s.subscribe(tester);
+		s.onNext(3);
+
+		tester.assertReceivedOnNext(Arrays.asList(1,2,3));
+	}
+
+	@Test
+	public void testLargeWindow() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		TimeWindowReplaySubject<Integer> s = TimeWindowReplaySubject.create(1, TimeUnit.SECONDS, scheduler);
+		// 100 values per millisecond
+		for (int i = 0 ; i < 200_000 ; i++) {
+			s.onNext(i);
+			if (i % 100 == 99)
+				scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+		}
+		s.subscribe(tester);
+		s.onCompleted();
+
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 100_100 ; i < 200_000 ; i++)
+			expected.add(i);
+		tester.assertReceivedOnNext(expected);
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testEviction() {
+		TestScheduler scheduler = Schedulers.test();
+
+		TimeWindowReplaySubject<Integer> s = TimeWindowReplaySubject.create(100, 50, TimeUnit.MILLISECONDS, scheduler, 4);
+		for (int i = 0 ; i < 20 ; i++) {
+			s.onNext(i);
+			scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+		}
+		// The tick at 200ms released the chunks before the window
+		assertEquals(9, s.size());
+		assertEquals(12, s.retained());
+
+		// Nothing is released between ticks
+		scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+		assertEquals(8, s.size());
+		assertEquals(12, s.retained());
+
+		scheduler.advanceTimeBy(40, TimeUnit.MILLISECONDS);
+		assertEquals(4, s.size());
+		assertEquals(4, s.retained());
+	}
+
+	@Test
+	public void testEverythingExpired() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+
+		TimeWindowReplaySubject<Integer> s = TimeWindowReplaySubject.create(100, 100, TimeUnit.MILLISECONDS, scheduler, 2);
+		s.onNext(0);
+		s.onNext(1);
+		scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+		s.subscribe(tester);
+		s.onNext(2);
+
+		tester.assertReceivedOnNext(Arrays.asList(2));
+	}
+
+	@Test
+	public void testStopsEvictionOnTermination() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+		List<Scheduler.Worker> workers = new ArrayList<>();
+		Scheduler recording = recording(scheduler, workers);
+
+		TimeWindowReplaySubject<Integer> s = TimeWindowReplaySubject.create(100, 50, TimeUnit.MILLISECONDS, recording, 2);
+		s.onNext(0);
+		s.onNext(1);
+		s.onNext(2);
+		s.onCompleted();
+		assertEquals(1, workers.size());
+		assertEquals(true, workers.get(0).isUnsubscribed());
+
+		// No more ticks, but the window still moves for late subscribers
+		scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+		assertEquals(3, s.retained());
+		s.subscribe(tester);
+		tester.assertReceivedOnNext(Arrays.asList());
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testEvictionStartsWithFirstValue() {
+		TestScheduler scheduler = Schedulers.test();
+		List<Scheduler.Worker> workers = new ArrayList<>();
+
+		TimeWindowReplaySubject<Integer> s = TimeWindowReplaySubject.create(100, 50, TimeUnit.MILLISECONDS, recording(scheduler, workers), 2);
+		s.subscribe(new TestSubscriber<Integer>());
+		assertEquals(0, workers.size());
+
+		s.onNext(0);
+		s.onNext(1);
+		assertEquals(1, workers.size());
+		assertEquals(false, workers.get(0).isUnsubscribed());
+	}
+
+	@Test
+	public void testUnsubscribeStopsEviction() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>();
+		TestScheduler scheduler = Schedulers.test();
+		List<Scheduler.Worker> workers = new ArrayList<>();
+
+		TimeWindowReplaySubject<Integer> s = TimeWindowReplaySubject.create(100, 50, TimeUnit.MILLISECONDS, recording(scheduler, workers), 2);
+		s.onNext(0);
+		s.unsubscribe();
+		assertEquals(true, s.isUnsubscribed());
+		assertEquals(1, workers.size());
+		assertEquals(true, workers.get(0).isUnsubscribed());
+
+		// The subject still works, but doesn't start the tick again
+		s.onNext(1);
+		s.onNext(2);
+		s.subscribe(tester);
+		tester.assertReceivedOnNext(Arrays.asList(0, 1, 2));
+		assertEquals(1, workers.size());
+	}
+
+	private static Scheduler recording(TestScheduler scheduler, List<Scheduler.Worker> workers) {
+		return new Scheduler() {
+			@Override
+			public Worker createWorker() {
+				Worker worker = scheduler.createWorker();
+				workers.add(worker);
+				return worker;
+			}
+
+			@Override
+			public long now() {
+				return scheduler.now();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,411 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1.primitive;
+
+import java.util.NoSuchElementException;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ToDoubleFunction;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.exceptions.OnErrorNotImplementedException;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * An Observable of primitive double values. Its operators pass the values on
+ * as primitives, so that a chain of them doesn't box. Values are only
+ * boxed when they leave through {@link #boxed()} or {@link #mapToObj(DoubleFunction)}.
+ * <p>
+ * There is no backpressure: a DoubleObservable emits as fast as its source.
+ */
+public final class DoubleObservable {
+
+	/**
+	 * Emits to the observer until the subscription is unsubscribed. A source
+	 * adds the resources it holds to the subscription.
+	 */
+	public interface OnSubscribe {
+		void call(DoubleObserver observer, CompositeSubscription subscription);
+	}
+
+	private final OnSubscribe onSubscribe;
+
+	private DoubleObservable(OnSubscribe onSubscribe) {
+		this.onSubscribe = onSubscribe;
+	}
+
+	public static DoubleObservable create(OnSubscribe onSubscribe) {
+		return new DoubleObservable(onSubscribe);
+	}
+
+
+	public static <T> DoubleObservable from(Observable<T> source, ToDoubleFunction<? super T> mapper) {
+		return create((observer, subscription) -> subscription.add(source.subscribe(
+				v -> {
+					double value;
+					try {
+						value = mapper.applyAsDouble(v);
+					} catch (Throwable e) {
+						subscription.unsubscribe();
+						observer.onError(e);
+						return;
+					}
+					observer.onNext(value);
+				},
+				observer::onError,
+				observer::onCompleted)));
+	}
+
+	public static DoubleObservable from(DoubleSubject subject) {
+		return create((observer, subscription) -> subscription.add(subject.subscribe(observer)));
+	}
+
+	public Subscription subscribe(DoubleObserver observer) {
+		CompositeSubscription subscription = new CompositeSubscription();
+		onSubscribe.call(observer, subscription);
+		return subscription;
+	}
+
+	public Subscription subscribe(DoubleConsumer onNext) {
+		return subscribe(new DoubleObserver() {
+			@Override
+			public void onNext(double value) {
+				onNext.accept(value);
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				throw new OnErrorNotImplementedException(e);
+			}
+
+			@Override
+			public void onCompleted() {
+			}
+		});
+	}
+
+	public Observable<Double> boxed() {
+		return Observable.create(child -> {
+			CompositeSubscription subscription = new CompositeSubscription();
+			child.add(subscription);
+			onSubscribe.call(DoubleObserver.from(child), subscription);
+		});
+	}
+
+	public <R> Observable<R> mapToObj(DoubleFunction<? extends R> mapper) {
+		return Observable.create(child -> {
+			CompositeSubscription subscription = new CompositeSubscription();
+			child.add(subscription);
+			onSubscribe.call(new Stage(null, subscription) {
+				@Override
+				public void onNext(double value) {
+					R r;
+					try {
+						r = mapper.apply(value);
+					} catch (Throwable e) {
+						fail(e);
+						return;
+					}
+					if (!done) {
+						child.onNext(r);
+					}
+				}
+
+				@Override
+				void error(Throwable e) {
+					child.onError(e);
+				}
+
+				@Override
+				void completed() {
+					child.onCompleted();
+				}
+			}, subscription);
+		});
+	}
+
+	public DoubleObservable map(DoubleUnaryOperator mapper) {
+		return lift((observer, subscription) -> new Stage(observer, subscription) {
+			@Override
+			public void onNext(double value) {
+				double r;
+				try {
+					r = mapper.applyAsDouble(value);
+				} catch (Throwable e) {
+					fail(e);
+					return;
+				}
+				if (!done) {
+					observer.onNext(r);
+				}
+			}
+		});
+	}
+
+
+	public IntObservable mapToInt(DoubleToIntFunction mapper) {
+		return IntObservable.create((observer, subscription) -> onSubscribe.call(new Stage(null, subscription) {
+			@Override
+			public void onNext(double value) {
+				int r;
+				try {
+					r = mapper.applyAsInt(value);
+				} catch (Throwable e) {
+					fail(e);
+					return;
+				}
+				if (!done) {
+					observer.onNext(r);
+				}
+			}
+
+			@Override
+			void error(Throwable e) {
+				observer.onError(e);
+			}
+
+			@Override
+			void completed() {
+				observer.onCompleted();
+			}
+		}, subscription));
+	}
+	public LongObservable mapToLong(DoubleToLongFunction mapper) {
+		return LongObservable.create((observer, subscription) -> onSubscribe.call(new Stage(null, subscription) {
+			@Override
+			public void onNext(double value) {
+				long r;
+				try {
+					r = mapper.applyAsLong(value);
+				} catch (Throwable e) {
+					fail(e);
+					return;
+				}
+				if (!done) {
+					observer.onNext(r);
+				}
+			}
+
+			@Override
+			void error(Throwable e) {
+				observer.onError(e);
+			}
+
+			@Override
+			void completed() {
+				observer.onCompleted();
+			}
+		}, subscription));
+	}
+	public DoubleObservable filter(DoublePredicate predicate) {
+		return lift((observer, subscription) -> new Stage(observer, subscription) {
+			@Override
+			public void onNext(double value) {
+				boolean pass;
+				try {
+					pass = predicate.test(value);
+				} catch (Throwable e) {
+					fail(e);
+					return;
+				}
+				if (pass && !done) {
+					observer.onNext(value);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Emits the running accumulation, starting with the first value
+	 */
+	public DoubleObservable scanDouble(DoubleBinaryOperator accumulator) {
+		return lift((observer, subscription) -> new Stage(observer, subscription) {
+			boolean first = true;
+			double accumulated;
+
+			@Override
+			public void onNext(double value) {
+				if (first) {
+					first = false;
+					accumulated = value;
+				} else {
+					try {
+						accumulated = accumulator.applyAsDouble(accumulated, value);
+					} catch (Throwable e) {
+						fail(e);
+						return;
+					}
+				}
+				if (!done) {
+					observer.onNext(accumulated);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Emits the initial value, followed by the running accumulation
+	 */
+	public DoubleObservable scanDouble(double initial, DoubleBinaryOperator accumulator) {
+		return lift((observer, subscription) -> {
+			observer.onNext(initial);
+			return new Stage(observer, subscription) {
+				double accumulated = initial;
+
+				@Override
+				public void onNext(double value) {
+					try {
+						accumulated = accumulator.applyAsDouble(accumulated, value);
+					} catch (Throwable e) {
+						fail(e);
+						return;
+					}
+					if (!done) {
+						observer.onNext(accumulated);
+					}
+				}
+			};
+		});
+	}
+
+	/**
+	 * Emits the accumulation of all the values when the source completes.
+	 * Fails with a {@link NoSuchElementException} if there were no values.
+	 */
+	public DoubleObservable reduceDouble(DoubleBinaryOperator accumulator) {
+		return lift((observer, subscription) -> new Stage(observer, subscription) {
+			boolean empty = true;
+			double accumulated;
+
+			@Override
+			public void onNext(double value) {
+				if (empty) {
+					empty = false;
+					accumulated = value;
+				} else {
+					try {
+						accumulated = accumulator.applyAsDouble(accumulated, value);
+					} catch (Throwable e) {
+						fail(e);
+					}
+				}
+			}
+
+			@Override
+			void completed() {
+				if (empty) {
+					observer.onError(new NoSuchElementException("Sequence contains no elements"));
+				} else {
+					observer.onNext(accumulated);
+					observer.onCompleted();
+				}
+			}
+		});
+	}
+
+	public DoubleObservable reduceDouble(double initial, DoubleBinaryOperator accumulator) {
+		return lift((observer, subscription) -> new Stage(observer, subscription) {
+			double accumulated = initial;
+
+			@Override
+			public void onNext(double value) {
+				try {
+					accumulated = accumulator.applyAsDouble(accumulated, value);
+				} catch (Throwable e) {
+					fail(e);
+				}
+			}
+
+			@Override
+			void completed() {
+				observer.onNext(accumulated);
+				observer.onCompleted();
+			}
+		});
+	}
+
+	public DoubleObservable sumDouble() {
+		return reduceDouble(0, (a, b) -> a + b);
+	}
+
+	private interface Operator {
+		DoubleObserver call(DoubleObserver observer, CompositeSubscription subscription);
+	}
+
+	private DoubleObservable lift(Operator operator) {
+		return create((observer, subscription) -> onSubscribe.call(operator.call(observer, subscription), subscription));
+	}
+
+	/**
+	 * Receives the values of this observable on behalf of an operator. Stops
+	 * the source and fails downstream if the operator throws.
+	 */
+	private static abstract class Stage implements DoubleObserver {
+		final DoubleObserver downstream;
+		final CompositeSubscription subscription;
+		boolean done;
+
+		Stage(DoubleObserver downstream, CompositeSubscription subscription) {
+			this.downstream = downstream;
+			this.subscription = subscription;
+		}
+
+		void fail(Throwable e) {
+			if (!done) {
+				done = true;
+				subscription.unsubscribe();
+				error(e);
+			}
+		}
+
+		void error(Throwable e) {
+			downstream.onError(e);
+		}
+
+		void completed() {
+			downstream.onCompleted();
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			if (!done) {
+				done = true;
+				error(e);
+			}
+		}
+
+		@Override
+		public void onCompleted() {
+			if (!done) {
+				done = true;
+				completed();
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1.primitive;
+
+import itrx.chapter1.SubscriberArray;
+import rx.Subscription;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A PublishSubject for primitive double values.
+ */
+public final class DoublePublishSubject extends DoubleSubject {
+
+	private final SubscriberArray<Registration<DoubleObserver>> subscribers = new SubscriberArray<>();
+	private volatile boolean done;
+	private volatile Throwable error;
+
+	public static DoublePublishSubject create() {
+		return new DoublePublishSubject();
+	}
+
+	private DoublePublishSubject() {
+	}
+
+	@Override
+	public Subscription subscribe(DoubleObserver observer) {
+		Registration<DoubleObserver> registration = new Registration<>(observer, subscribers);
+		if (subscribers.add(registration)) {
+			return registration;
+		}
+		emitTerminal(observer, error);
+		return Subscriptions.unsubscribed();
+	}
+
+	@Override
+	public void onNext(double value) {
+		if (!done) {
+			for (Object o : subscribers.snapshot()) {
+				@SuppressWarnings("unchecked")
+				Registration<DoubleObserver> r = (Registration<DoubleObserver>) o;
+				r.observer.onNext(value);
+			}
+		}
+	}
+
+	@Override
+	public void onError(Throwable e) {
+		if (!done) {
+			error = e;
+			done = true;
+			subscribers.terminate(r -> r.observer.onError(e));
+		}
+	}
+
+	@Override
+	public void onCompleted() {
+		if (!done) {
+			done = true;
+			subscribers.terminate(r -> r.observer.onCompleted());
+		}
+	}
+
+	@Override
+	public boolean hasObservers() {
+		return subscribers.size() > 0;
+	}
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1.primitive;
+
+import java.util.function.DoubleConsumer;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.exceptions.OnErrorNotImplementedException;
+
+/**
+ * A subject that accepts and emits primitive double values. Values are only
+ * boxed for subscribers that go through {@link #asObservable()}.
+ */
+public abstract class DoubleSubject implements DoubleObserver {
+
+	public abstract Subscription subscribe(DoubleObserver observer);
+
+	public abstract boolean hasObservers();
+
+	public Subscription subscribe(DoubleConsumer onNext) {
+		return subscribe(new DoubleObserver() {
+			@Override
+			public void onNext(double value) {
+				onNext.accept(value);
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				throw new OnErrorNotImplementedException(e);
+			}
+
+			@Override
+			public void onCompleted() {
+			}
+		});
+	}
+
+	public Observable<Double> asObservable() {
+		return Observable.create(child -> child.add(subscribe(DoubleObserver.from(child))));
+	}
+
+	static void emitTerminal(DoubleObserver observer, Throwable error) {
+		if (error != null) {
+			observer.onError(error);
+		} else {
+			observer.onCompleted();
+		}
+	}
+}
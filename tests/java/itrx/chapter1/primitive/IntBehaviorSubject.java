@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1.primitive;
+
+import itrx.chapter1.SubscriberArray;
+import rx.Subscription;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A BehaviorSubject for primitive int values. Emission and subscription
+ * are serialized through the subject's monitor, so that a late subscriber
+ * receives the current value followed by every later one, in order.
+ */
+public final class IntBehaviorSubject extends IntSubject {
+
+	private final SubscriberArray<Registration<IntObserver>> subscribers = new SubscriberArray<>();
+	private volatile int value;
+	private volatile boolean hasValue;
+	private volatile boolean done;
+	private volatile Throwable error;
+
+	public static IntBehaviorSubject create() {
+		return new IntBehaviorSubject();
+	}
+
+	public static IntBehaviorSubject create(int defaultValue) {
+		IntBehaviorSubject subject = new IntBehaviorSubject();
+		subject.value = defaultValue;
+		subject.hasValue = true;
+		return subject;
+	}
+
+	private IntBehaviorSubject() {
+	}
+
+	@Override
+	public synchronized Subscription subscribe(IntObserver observer) {
+		Registration<IntObserver> registration = new Registration<>(observer, subscribers);
+		if (subscribers.add(registration)) {
+			if (hasValue) {
+				observer.onNext(value);
+			}
+			return registration;
+		}
+		emitTerminal(observer, error);
+		return Subscriptions.unsubscribed();
+	}
+
+	@Override
+	public synchronized void onNext(int value) {
+		if (!done) {
+			this.value = value;
+			hasValue = true;
+			for (Object o : subscribers.snapshot()) {
+				@SuppressWarnings("unchecked")
+				Registration<IntObserver> r = (Registration<IntObserver>) o;
+				r.observer.onNext(value);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void onError(Throwable e) {
+		if (!done) {
+			error = e;
+			done = true;
+			subscribers.terminate(r -> r.observer.onError(e));
+		}
+	}
+
+	@Override
+	public synchronized void onCompleted() {
+		if (!done) {
+			done = true;
+			subscribers.terminate(r -> r.observer.onCompleted());
+		}
+	}
+
+	@Override
+	public boolean hasObservers() {
+		return subscribers.size() > 0;
+	}
+
+	public boolean hasValue() {
+		return hasValue;
+	}
+
+	public int getValue() {
+		return value;
+	}
+}
@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1.primitive;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import itrx.chapter1.SubscriberArray;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action1;
+
+/**
+ * A ReplaySubject for primitive long values. The history is kept in
+ * long[] chunks, which every subscriber replays through its own cursor,
+ * in the same way as {@link itrx.chapter1.ChunkedReplaySubject}.
+ */
+public final class LongReplaySubject extends LongSubject {
+
+	public static final int DEFAULT_CHUNK_SIZE = 64;
+
+	private final SubscriberArray<Registration<Cursor>> subscribers = new SubscriberArray<>();
+	private final Action1<Registration<Cursor>> drainAction = this::drain;
+	private final int chunkSize;
+	private final long maxSize;
+	private final long maxAgeMillis;
+	private final Scheduler scheduler;
+
+	// The start of the history. Guarded by this.
+	private Chunk head;
+	private int headOffset;
+	private long headIndex;
+	private long lastTimestamp = Long.MIN_VALUE;
+
+	// Only touched by the producer
+	private Chunk tail;
+	private int tailOffset;
+
+	// Values and links are written before count, so that readers
+	// who see the new count also see everything before it.
+	private volatile long count;
+	private volatile boolean done;
+	private volatile Throwable error;
+
+	public static LongReplaySubject create() {
+		return new LongReplaySubject(DEFAULT_CHUNK_SIZE, Long.MAX_VALUE, 0, null);
+	}
+
+	public static LongReplaySubject createWithSize(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size > 0 required but it was " + size);
+		}
+		return new LongReplaySubject(DEFAULT_CHUNK_SIZE, size, 0, null);
+	}
+
+	public static LongReplaySubject createWithTime(long time, TimeUnit unit, Scheduler scheduler) {
+		return new LongReplaySubject(DEFAULT_CHUNK_SIZE, Long.MAX_VALUE, unit.toMillis(time), scheduler);
+	}
+
+	private LongReplaySubject(int chunkSize, long maxSize, long maxAgeMillis, Scheduler scheduler) {
+		this.chunkSize = chunkSize;
+		this.maxSize = maxSize;
+		this.maxAgeMillis = maxAgeMillis;
+		this.scheduler = scheduler;
+		this.head = this.tail = new Chunk(chunkSize, scheduler != null);
+	}
+
+	@Override
+	public Subscription subscribe(LongObserver observer) {
+		Cursor cursor;
+		synchronized (this) {
+			trim();
+			cursor = new Cursor(observer, head, headOffset, headIndex);
+		}
+		Registration<Cursor> registration = new Registration<>(cursor, subscribers);
+		subscribers.add(registration);
+		drain(registration);
+		return registration;
+	}
+
+	@Override
+	public void onNext(long value) {
+		if (!done) {
+			add(value);
+			subscribers.forEach(drainAction);
+		}
+	}
+
+	@Override
+	public void onError(Throwable e) {
+		if (!done) {
+			error = e;
+			done = true;
+			subscribers.terminate(drainAction);
+		}
+	}
+
+	@Override
+	public void onCompleted() {
+		if (!done) {
+			done = true;
+			subscribers.terminate(drainAction);
+		}
+	}
+
+	@Override
+	public boolean hasObservers() {
+		return subscribers.size() > 0;
+	}
+
+	/**
+	 * @return The number of values that a subscriber would receive if it subscribed now
+	 */
+	public synchronized int size() {
+		trim();
+		return (int) (count - headIndex);
+	}
+
+	private synchronized void add(long value) {
+		if (tailOffset == chunkSize) {
+			Chunk c = new Chunk(chunkSize, scheduler != null);
+			tail.next = c;
+			tail = c;
+			tailOffset = 0;
+		}
+		tail.values[tailOffset] = value;
+		if (scheduler != null) {
+			// The scheduler's clock may step back, but the binary
+			// search in trim relies on timestamps that never do
+			long now = Math.max(scheduler.now(), lastTimestamp);
+			lastTimestamp = now;
+			tail.timestamps[tailOffset] = now;
+		}
+		tailOffset++;
+		count = count + 1;
+		trim();
+	}
+
+	private void trim() {
+		long c = count;
+		if (c - headIndex > maxSize) {
+			advanceHeadTo(c - maxSize);
+		}
+		if (scheduler != null) {
+			long limit = scheduler.now() - maxAgeMillis;
+			while (headIndex < c) {
+				skipFullChunk();
+				int last = headOffset + (int) Math.min(chunkSize - headOffset, c - headIndex) - 1;
+				if (head.timestamps[last] <= limit) {
+					// The rest of the chunk has expired
+					advanceHeadTo(headIndex + last - headOffset + 1);
+					continue;
+				}
+				int low = headOffset;
+				int high = last;
+				while (low < high) {
+					int mid = (low + high) >>> 1;
+					if (head.timestamps[mid] <= limit) {
+						low = mid + 1;
+					} else {
+						high = mid;
+					}
+				}
+				advanceHeadTo(headIndex + low - headOffset);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Moves the start of the history forward, a chunk at a time
+	 */
+	private void advanceHeadTo(long index) {
+		long n = index - headIndex;
+		while (n > 0) {
+			skipFullChunk();
+			int step = (int) Math.min(n, chunkSize - headOffset);
+			headOffset += step;
+			headIndex += step;
+			n -= step;
+		}
+	}
+
+	private void skipFullChunk() {
+		if (headOffset == chunkSize) {
+			head = head.next;
+			headOffset = 0;
+		}
+	}
+
+	private void drain(Registration<Cursor> registration) {
+		Cursor cursor = registration.observer;
+		if (cursor.getAndIncrement() != 0) {
+			return;
+		}
+		LongObserver observer = cursor.observer;
+		int missed = 1;
+		for (;;) {
+			boolean d = done;
+			long c = count;
+
+			Chunk chunk = cursor.chunk;
+			int offset = cursor.offset;
+			long index = cursor.index;
+			while (index != c) {
+				if (registration.isUnsubscribed()) {
+					return;
+				}
+				if (offset == chunkSize) {
+					chunk = chunk.next;
+					offset = 0;
+				}
+				observer.onNext(chunk.values[offset]);
+				offset++;
+				index++;
+			}
+			cursor.chunk = chunk;
+			cursor.offset = offset;
+			cursor.index = index;
+
+			if (d) {
+				cursor.chunk = null;
+				emitTerminal(observer, error);
+				return;
+			}
+
+			missed = cursor.addAndGet(-missed);
+			if (missed == 0) {
+				return;
+			}
+		}
+	}
+
+	private static final class Chunk {
+		final long[] values;
+		final long[] timestamps;
+		Chunk next;
+
+		Chunk(int size, boolean timed) {
+			values = new long[size];
+			timestamps = timed ? new long[size] : null;
+		}
+	}
+
+	private static final class Cursor extends AtomicInteger {
+		private static final long serialVersionUID = 1L;
+
+		final LongObserver observer;
+		Chunk chunk;
+		int offset;
+		long index;
+
+		Cursor(LongObserver observer, Chunk chunk, int offset, long index) {
+			this.observer = observer;
+			this.chunk = chunk;
+			this.offset = offset;
+			this.index = index;
+		}
+	}
+}
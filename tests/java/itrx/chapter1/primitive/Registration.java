@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter1.primitive;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import itrx.chapter1.SubscriberArray;
+import rx.Subscription;
+
+/**
+ * The link between a primitive subject and one of its observers.
+ * Unsubscribing removes the observer from the subject.
+ */
+final class Registration<O> extends AtomicBoolean implements Subscription {
+	private static final long serialVersionUID = 1L;
+
+	final O observer;
+	private final SubscriberArray<Registration<O>> owner;
+
+	Registration(O observer, SubscriberArray<Registration<O>> owner) {
+		this.observer = observer;
+		this.owner = owner;
+	}
+
+	@Override
+	public void unsubscribe() {
+		if (compareAndSet(false, true)) {
+			owner.remove(this);
+		}
+	}
+
+	@Override
+	public boolean isUnsubscribed() {
+		return get();
+	}
+}
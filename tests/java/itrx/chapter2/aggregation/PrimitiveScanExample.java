@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.aggregation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import itrx.chapter1.primitive.IntObservable;
+import itrx.chapter1.primitive.LongObservable;
+import itrx.chapter1.primitive.LongReplaySubject;
+import rx.observers.TestSubscriber;
+
+public class PrimitiveScanExample {
+
+	public void exampleRunningSum() {
+		IntObservable values = IntObservable.range(0,5);
+
+		values
+		    .scanInt((i1,i2) -> i1+i2)
+		    .subscribe(i -> System.out.println("Sum: " + i));
+
+		// Sum: 0
+		// Sum: 1
+		// Sum: 3
+		// Sum: 6
+		// Sum: 10
+	}
+
+	public void exampleRunningMin() {
+		LongReplaySubject values = LongReplaySubject.create();
+
+		LongObservable.from(values)
+		    .subscribe(v -> System.out.println("Values: " + v));
+		LongObservable.from(values)
+		    .scanLong((i1,i2) -> (i1<i2) ? i1 : i2)
+		    .boxed()
+		    .distinctUntilChanged()
+		    .subscribe(v -> System.out.println("Min: " + v));
+
+		values.onNext(2);
+		values.onNext(3);
+		values.onNext(1);
+		values.onNext(4);
+		values.onCompleted();
+
+		// Values: 2
+		// Min: 2
+		// Values: 3
+		// Values: 1
+		// Min: 1
+		// Values: 4
+	}
+
+	public void exampleSum() {
+		IntObservable.range(0,5)
+		    .map(i -> i * 2)
+		    .mapToLong(i -> i)
+		    .sumLong()
+		    .subscribe(v -> System.out.println("Sum: " + v));
+
+		// Sum: 20
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testRunningSum() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		IntObservable values = IntObservable.range(0,5);
+
+		values
+		    .scanInt((i1,i2) -> i1+i2)
+		    .boxed()
+		    .subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(0,1,3,6,10));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testRunningMin() {
+		TestSubscriber<Long> testerSource = new TestSubscriber<>();
+		TestSubscriber<Long> testerScan = new TestSubscriber<>();
+
+		LongReplaySubject values = LongReplaySubject.create();
+
+		LongObservable.from(values)
+		    .boxed()
+		    .subscribe(testerSource);
+		LongObservable.from(values)
+		    .scanLong((i1,i2) -> (i1<i2) ? i1 : i2)
+		    .boxed()
+		    .distinctUntilChanged()
+		    .subscribe(testerScan);
+
+		values.onNext(2);
+		values.onNext(3);
+		values.onNext(1);
+		values.onNext(4);
+		values.onCompleted();
+
+		testerSource.assertReceivedOnNext(Arrays.asList(2L,3L,1L,4L));
+		testerSource.assertTerminalEvent();
+		testerSource.assertNoErrors();
+		testerScan.assertReceivedOnNext(Arrays.asList(2L,1L));
+		testerScan.assertTerminalEvent();
+		testerScan.assertNoErrors();
+	}
+
+	@Test
+	public void testScanWithInitial() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		LongObservable.range(1, 3)
+		    .scanLong(10, (a, b) -> a * b)
+		    .boxed()
+		    .subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(10L,10L,20L,60L));
+	}
+
+	@Test
+	public void testReduceAndSum() {
+		TestSubscriber<Long> sum = new TestSubscriber<>();
+		TestSubscriber<Double> max = new TestSubscriber<>();
+
+		LongObservable.range(0, 5)
+		    .sumLong()
+		    .boxed()
+		    .subscribe(sum);
+		LongObservable.range(0, 5)
+		    .mapToDouble(l -> l / 2.0)
+		    .reduceDouble(Math::max)
+		    .boxed()
+		    .subscribe(max);
+
+		sum.assertReceivedOnNext(Arrays.asList(10L));
+		sum.assertTerminalEvent();
+		max.assertReceivedOnNext(Arrays.asList(2.0));
+	}
+
+	@Test
+	public void testReduceEmpty() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		LongObservable.range(0, 0)
+		    .reduceLong((a, b) -> a + b)
+		    .boxed()
+		    .subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList());
+		assertEquals(NoSuchElementException.class, tester.getOnErrorEvents().get(0).getClass());
+	}
+
+}
@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action1;
+import rx.functions.Func1;
+
+/**
+ * A source that emits its values in batches, like {@link Observable#create}
+ * but with an emitter that also accepts a range of an array in a single
+ * call. The batch-aware operators of this class process a whole batch in a
+ * loop and pass it on with a single call. Any other operator is available
+ * after {@link #toObservable()}, which unrolls the batches into
+ * individual values.
+ * <p>
+ * A batch is only valid for the duration of the call: the source may reuse
+ * the array afterwards, and so do the operators.
+ *
+ * @param <T> The type of the values
+ */
+public final class BatchObservable<T> {
+
+	/**
+	 * The emitter that a batch source pushes its values to
+	 */
+	public interface Emitter<T> {
+		void onNextBatch(T[] items, int from, int to);
+		void onNext(T item);
+		void onError(Throwable e);
+		void onCompleted();
+		boolean isUnsubscribed();
+	}
+
+	/**
+	 * The receiving end of a batch. Only implemented by this class, so
+	 * that the erased Object[] can never meet an array type check.
+	 */
+	private interface Sink {
+		void onBatch(Object[] items, int from, int to);
+		void onError(Throwable e);
+		void onCompleted();
+	}
+
+	private final Action1<Emitter<Object>> source;
+	private final Func1<Sink, Sink> chain;
+
+	private BatchObservable(Action1<Emitter<Object>> source, Func1<Sink, Sink> chain) {
+		this.source = source;
+		this.chain = chain;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> BatchObservable<T> create(Action1<? super Emitter<T>> source) {
+		return new BatchObservable<>(e -> source.call((Emitter<T>) (Emitter<?>) e), sink -> sink);
+	}
+
+	public <R> BatchObservable<R> map(Func1<? super T, ? extends R> mapper) {
+		return lift(sink -> new MapSink<T, R>(mapper, sink));
+	}
+
+	public BatchObservable<T> filter(Func1<? super T, Boolean> predicate) {
+		return lift(sink -> new FilterSink<T>(predicate, sink));
+	}
+
+	public BatchObservable<List<T>> buffer(int count) {
+		if (count <= 0) {
+			throw new IllegalArgumentException("count > 0 required but it was " + count);
+		}
+		return lift(sink -> new BufferSink(count, false, sink));
+	}
+
+	public BatchObservable<List<T>> toList() {
+		return lift(sink -> new BufferSink(Integer.MAX_VALUE, true, sink));
+	}
+
+	public Observable<T> toObservable() {
+		return Observable.create(child -> {
+			Sink sink = chain.call(new ChildSink<T>(child));
+			source.call(new SinkEmitter(sink, child));
+		});
+	}
+
+	private <R> BatchObservable<R> lift(Func1<Sink, Sink> operator) {
+		return new BatchObservable<>(source, sink -> chain.call(operator.call(sink)));
+	}
+
+	private static final class SinkEmitter implements Emitter<Object> {
+		final Sink sink;
+		final Subscriber<?> child;
+		boolean done;
+
+		SinkEmitter(Sink sink, Subscriber<?> child) {
+			this.sink = sink;
+			this.child = child;
+		}
+
+		@Override
+		public void onNextBatch(Object[] items, int from, int to) {
+			if (from < 0 || to > items.length || from > to) {
+				throw new IndexOutOfBoundsException("[" + from + ", " + to + ") of " + items.length);
+			}
+			if (!done && from != to && !child.isUnsubscribed()) {
+				sink.onBatch(items, from, to);
+			}
+		}
+
+		@Override
+		public void onNext(Object item) {
+			onNextBatch(new Object[] { item }, 0, 1);
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			if (!done) {
+				done = true;
+				sink.onError(e);
+			}
+		}
+
+		@Override
+		public void onCompleted() {
+			if (!done) {
+				done = true;
+				sink.onCompleted();
+			}
+		}
+
+		@Override
+		public boolean isUnsubscribed() {
+			return child.isUnsubscribed();
+		}
+	}
+
+	private static final class ChildSink<T> implements Sink {
+		final Subscriber<? super T> child;
+
+		ChildSink(Subscriber<? super T> child) {
+			this.child = child;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void onBatch(Object[] items, int from, int to) {
+			for (int i = from ; i < to && !child.isUnsubscribed() ; i++) {
+				child.onNext((T) items[i]);
+			}
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			child.onError(e);
+		}
+
+		@Override
+		public void onCompleted() {
+			child.onCompleted();
+		}
+	}
+
+	/**
+	 * Stops passing anything downstream after it has failed
+	 */
+	private static abstract class OperatorSink implements Sink {
+		final Sink downstream;
+		Object[] scratch = new Object[0];
+		boolean failed;
+
+		OperatorSink(Sink downstream) {
+			this.downstream = downstream;
+		}
+
+		Object[] scratch(int size) {
+			if (scratch.length < size) {
+				scratch = Arrays.copyOf(scratch, Math.max(size, scratch.length * 2));
+			}
+			return scratch;
+		}
+
+		@Override
+		public void onBatch(Object[] items, int from, int to) {
+			if (failed) {
+				return;
+			}
+			int count;
+			try {
+				count = process(items, from, to);
+			} catch (Throwable e) {
+				failed = true;
+				downstream.onError(e);
+				return;
+			}
+			if (count > 0) {
+				downstream.onBatch(scratch, 0, count);
+			}
+		}
+
+		/**
+		 * @return The number of values written to the start of the scratch array
+		 */
+		abstract int process(Object[] items, int from, int to);
+
+		@Override
+		public void onError(Throwable e) {
+			if (!failed) {
+				downstream.onError(e);
+			}
+		}
+
+		@Override
+		public void onCompleted() {
+			if (!failed) {
+				downstream.onCompleted();
+			}
+		}
+	}
+
+	private static final class MapSink<T, R> extends OperatorSink {
+		final Func1<? super T, ? extends R> mapper;
+
+		MapSink(Func1<? super T, ? extends R> mapper, Sink downstream) {
+			super(downstream);
+			this.mapper = mapper;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		int process(Object[] items, int from, int to) {
+			Object[] out = scratch(to - from);
+			for (int i = from ; i < to ; i++) {
+				out[i - from] = mapper.call((T) items[i]);
+			}
+			return to - from;
+		}
+	}
+
+	private static final class FilterSink<T> extends OperatorSink {
+		final Func1<? super T, Boolean> predicate;
+
+		FilterSink(Func1<? super T, Boolean> predicate, Sink downstream) {
+			super(downstream);
+			this.predicate = predicate;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		int process(Object[] items, int from, int to) {
+			Object[] out = scratch(to - from);
+			int count = 0;
+			for (int i = from ; i < to ; i++) {
+				if (predicate.call((T) items[i])) {
+					out[count++] = items[i];
+				}
+			}
+			return count;
+		}
+	}
+
+	private static final class BufferSink extends OperatorSink {
+		final int size;
+		final boolean emitEmpty;
+		List<Object> current;
+
+		BufferSink(int size, boolean emitEmpty, Sink downstream) {
+			super(downstream);
+			this.size = size;
+			this.emitEmpty = emitEmpty;
+		}
+
+		@Override
+		int process(Object[] items, int from, int to) {
+			int count = 0;
+			for (int i = from ; i < to ; ) {
+				if (current == null) {
+					current = new ArrayList<>(Math.min(size, to - i));
+				}
+				int n = Math.min(to - i, size - current.size());
+				current.addAll(Arrays.asList(items).subList(i, i + n));
+				i += n;
+				if (current.size() == size) {
+					scratch(count + 1)[count++] = current;
+					current = null;
+				}
+			}
+			return count;
+		}
+
+		@Override
+		public void onCompleted() {
+			if (!failed) {
+				if (current == null && emitEmpty) {
+					current = new ArrayList<>();
+				}
+				if (current != null) {
+					downstream.onBatch(new Object[] { current }, 0, 1);
+					current = null;
+				}
+				downstream.onCompleted();
+			}
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import rx.observers.TestSubscriber;
+
+public class BatchObservableExample {
+
+	/**
+	 * Polls up to 500 values at a time from a queue, like a Kafka consumer
+	 */
+	private static BatchObservable<Integer> poll(List<Integer> queue) {
+		return BatchObservable.create(o -> {
+			Integer[] batch = new Integer[500];
+			for (int i = 0 ; i < queue.size() && !o.isUnsubscribed() ; ) {
+				int n = Math.min(batch.length, queue.size() - i);
+				for (int j = 0 ; j < n ; j++)
+					batch[j] = queue.get(i + j);
+				o.onNextBatch(batch, 0, n);
+				i += n;
+			}
+			o.onCompleted();
+		});
+	}
+
+	private static List<Integer> range(int count) {
+		List<Integer> values = new ArrayList<>();
+		for (int i = 0 ; i < count ; i++)
+			values.add(i);
+		return values;
+	}
+
+	public void exampleCreate() {
+		BatchObservable<String> values = BatchObservable.create(o -> {
+			o.onNextBatch(new String[] {"Hello", "batched", "world"}, 0, 3);
+			o.onCompleted();
+		});
+
+		values.toObservable().subscribe(
+		    v -> System.out.println("Received: " + v),
+		    e -> System.out.println("Error: " + e),
+		    () -> System.out.println("Completed")
+		);
+
+		// Received: Hello
+		// Received: batched
+		// Received: world
+		// Completed
+	}
+
+	public void exampleOperators() {
+		poll(range(2000))
+			.filter(i -> i % 3 == 0)
+			.map(i -> i * 2)
+			.buffer(300)
+			// Unbatched from here on
+			.toObservable()
+			.map(List::size)
+			.subscribe(System.out::println);
+
+		// 300
+		// 300
+		// 67
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testCreate() {
+		TestSubscriber<String> tester = new TestSubscriber<>();
+
+		BatchObservable.<String>create(o -> {
+			o.onNextBatch(new String[] {"a", "b", "c", "d"}, 1, 3);
+			o.onNext("e");
+			o.onCompleted();
+		})
+			.toObservable()
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList("b", "c", "e"));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testMapFilter() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0 ; i < 2000 ; i++)
+			if (i % 3 == 0)
+				expected.add(i * 2);
+
+		poll(range(2000))
+			.filter(i -> i % 3 == 0)
+			.map(i -> i * 2)
+			.toObservable()
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(expected);
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testBuffer() {
+		TestSubscriber<List<Integer>> spanning = new TestSubscriber<>();
+		TestSubscriber<List<Integer>> several = new TestSubscriber<>();
+
+		// Buffers that span batches and batches that fill several buffers
+		poll(range(1200))
+			.buffer(700)
+			.toObservable()
+			.subscribe(spanning);
+		poll(range(1200))
+			.buffer(200)
+			.toObservable()
+			.subscribe(several);
+
+		spanning.assertReceivedOnNext(Arrays.asList(
+				range(1200).subList(0, 700),
+				range(1200).subList(700, 1200)));
+		assertEquals(6, several.getOnNextEvents().size());
+		for (int i = 0 ; i < 6 ; i++)
+			assertEquals(range(1200).subList(i * 200, i * 200 + 200), several.getOnNextEvents().get(i));
+	}
+
+	@Test
+	public void testToList() {
+		TestSubscriber<List<Integer>> tester = new TestSubscriber<>();
+		TestSubscriber<List<Integer>> empty = new TestSubscriber<>();
+
+		poll(range(1234))
+			.toList()
+			.toObservable()
+			.subscribe(tester);
+		poll(range(0))
+			.toList()
+			.toObservable()
+			.subscribe(empty);
+
+		tester.assertReceivedOnNext(Arrays.asList(range(1234)));
+		empty.assertReceivedOnNext(Arrays.asList(range(0)));
+	}
+
+	@Test
+	public void testFallback() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		int[] pushed = { 0 };
+
+		BatchObservable.<Integer>create(o -> {
+			Integer[] batch = {0, 1, 2, 3, 4};
+			while (!o.isUnsubscribed()) {
+				o.onNextBatch(batch, 0, batch.length);
+				pushed[0] += batch.length;
+			}
+		})
+			.map(i -> i + 1)
+			.toObservable()
+			.skip(2)
+			.take(4)
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(3, 4, 5, 1));
+		tester.assertTerminalEvent();
+		assertEquals(10, pushed[0]);
+	}
+
+	@Test
+	public void testError() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		poll(range(10))
+			.map(i -> 10 / (5 - i))
+			.toObservable()
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList());
+		assertEquals(ArithmeticException.class, tester.getOnErrorEvents().get(0).getClass());
+	}
+
+}
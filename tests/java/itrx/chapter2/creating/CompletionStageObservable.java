@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.Producer;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Like {@link Observable#from(Future)}, but for a {@link CompletionStage}.
+ * The value is pushed by a callback when the stage completes, so no thread
+ * waits in {@link Future#get()}. If the stage is also a {@link Future}, it
+ * is cancelled when the last subscriber that is still waiting for it
+ * unsubscribes or times out. The subscribers of the same observable are
+ * reference-counted, so one of them leaving doesn't affect the others.
+ */
+public final class CompletionStageObservable {
+
+	private CompletionStageObservable() {
+	}
+
+	public static <T> Observable<T> from(CompletionStage<? extends T> stage) {
+		Waiting waiting = new Waiting(stage);
+		return Observable.create(child -> subscribe(child, stage, waiting));
+	}
+
+	/**
+	 * Fails with a {@link TimeoutException} if the stage hasn't completed
+	 * within the timeout. The timeout is a single task on the scheduler.
+	 */
+	public static <T> Observable<T> from(CompletionStage<? extends T> stage, long timeout, TimeUnit unit) {
+		return from(stage, timeout, unit, Schedulers.computation());
+	}
+
+	public static <T> Observable<T> from(CompletionStage<? extends T> stage, long timeout, TimeUnit unit, Scheduler scheduler) {
+		Waiting waiting = new Waiting(stage);
+		return Observable.create(child -> {
+			Emitter<T> emitter = subscribe(child, stage, waiting);
+			Scheduler.Worker worker = scheduler.createWorker();
+			child.add(worker);
+			worker.schedule(() -> {
+				if (emitter.error(new TimeoutException())) {
+					waiting.leave();
+				}
+			}, timeout, unit);
+		});
+	}
+
+	private static <T> Emitter<T> subscribe(Subscriber<? super T> child, CompletionStage<? extends T> stage, Waiting waiting) {
+		Emitter<T> emitter = new Emitter<>(child);
+		waiting.join();
+		child.add(Subscriptions.create(() -> {
+			if (emitter.cancel()) {
+				waiting.leave();
+			}
+		}));
+		child.setProducer(emitter);
+		stage.whenComplete((v, e) -> {
+			if (e != null) {
+				emitter.error(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+			} else {
+				emitter.value(v);
+			}
+		});
+		return emitter;
+	}
+
+	/**
+	 * Counts the subscribers that are still waiting for the stage and
+	 * cancels it when the last one leaves. Subscribers that received the
+	 * outcome stay counted, since the stage is complete by then.
+	 */
+	private static final class Waiting extends AtomicInteger {
+		private static final long serialVersionUID = 1L;
+
+		final CompletionStage<?> stage;
+
+		Waiting(CompletionStage<?> stage) {
+			this.stage = stage;
+		}
+
+		void join() {
+			incrementAndGet();
+		}
+
+		void leave() {
+			if (decrementAndGet() == 0 && stage instanceof Future) {
+				((Future<?>) stage).cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Holds the outcome of the stage until the subscriber requests it.
+	 * Only the first of the outcome, a timeout or a cancellation counts.
+	 */
+	private static final class Emitter<T> extends AtomicInteger implements Producer {
+		private static final long serialVersionUID = 1L;
+
+		static final int EMPTY = 0;
+		static final int REQUESTED = 1;
+		static final int HAS_VALUE = 2;
+		static final int DONE = 3;
+
+		final Subscriber<? super T> child;
+		T value;
+
+		Emitter(Subscriber<? super T> child) {
+			this.child = child;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n > 0 && !compareAndSet(EMPTY, REQUESTED) && compareAndSet(HAS_VALUE, DONE)) {
+				emit(value);
+			}
+		}
+
+		void value(T v) {
+			for (;;) {
+				int state = get();
+				if (state == REQUESTED) {
+					if (compareAndSet(REQUESTED, DONE)) {
+						emit(v);
+						return;
+					}
+				} else if (state == EMPTY) {
+					value = v;
+					if (compareAndSet(EMPTY, HAS_VALUE)) {
+						return;
+					}
+				} else {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * @return true if the error decided the outcome
+		 */
+		boolean error(Throwable e) {
+			for (;;) {
+				int state = get();
+				if (state >= HAS_VALUE) {
+					return false;
+				}
+				if (compareAndSet(state, DONE)) {
+					child.onError(e);
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * @return true if the outcome was still pending
+		 */
+		boolean cancel() {
+			for (;;) {
+				int state = get();
+				if (state == DONE) {
+					return false;
+				}
+				if (compareAndSet(state, DONE)) {
+					value = null;
+					return state != HAS_VALUE;
+				}
+			}
+		}
+
+		private void emit(T v) {
+			value = null;
+			if (!child.isUnsubscribed()) {
+				child.onNext(v);
+				if (!child.isUnsubscribed()) {
+					child.onCompleted();
+				}
+			}
+		}
+	}
+}
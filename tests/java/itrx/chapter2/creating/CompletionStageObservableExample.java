@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import itrx.chapter4.backpressure.ControlledPullSubscriber;
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+public class CompletionStageObservableExample {
+
+	public void exampleFromCompletionStage() {
+		CompletableFuture<Integer> f = CompletableFuture.supplyAsync(() -> {
+			try {
+				Thread.sleep(2000);
+			} catch (InterruptedException e) {
+			}
+			return 21;
+		});
+
+		Observable<Integer> values = CompletionStageObservable.from(f);
+
+		values.subscribe(
+		    v -> System.out.println("Received: " + v),
+		    e -> System.out.println("Error: " + e),
+		    () -> System.out.println("Completed")
+		);
+
+		// Received: 21
+		// Completed
+	}
+
+	public void exampleFromCompletionStageTimeout() {
+		CompletableFuture<Integer> f = new CompletableFuture<>();
+
+		Observable<Integer> values = CompletionStageObservable.from(f, 1000, TimeUnit.MILLISECONDS);
+
+		values.subscribe(
+		    v -> System.out.println("Received: " + v),
+		    e -> System.out.println("Error: " + e),
+		    () -> System.out.println("Completed")
+		);
+
+		// Error: java.util.concurrent.TimeoutException
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testValue() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		CompletableFuture<Integer> f = new CompletableFuture<>();
+
+		CompletionStageObservable.from(f).subscribe(tester);
+		tester.assertReceivedOnNext(Arrays.asList());
+		f.complete(21);
+
+		tester.assertReceivedOnNext(Arrays.asList(21));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testError() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		CompletableFuture<Integer> f = new CompletableFuture<>();
+		IllegalStateException error = new IllegalStateException();
+
+		CompletionStageObservable.from(f.thenApply(v -> v + 1)).subscribe(tester);
+		f.completeExceptionally(error);
+
+		assertEquals(Arrays.asList(error), tester.getOnErrorEvents());
+	}
+
+	@Test
+	public void testTimeout() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		TestScheduler scheduler = Schedulers.test();
+		CompletableFuture<Integer> f = new CompletableFuture<>();
+
+		CompletionStageObservable.from(f, 1000, TimeUnit.MILLISECONDS, scheduler).subscribe(tester);
+		scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+
+		assertEquals(1, tester.getOnErrorEvents().size());
+		assertEquals(TimeoutException.class, tester.getOnErrorEvents().get(0).getClass());
+		assertEquals(true, f.isCancelled());
+	}
+
+	@Test
+	public void testBeforeTimeout() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		TestScheduler scheduler = Schedulers.test();
+		CompletableFuture<Integer> f = new CompletableFuture<>();
+
+		CompletionStageObservable.from(f, 1000, TimeUnit.MILLISECONDS, scheduler).subscribe(tester);
+		scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+		f.complete(21);
+		scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+
+		tester.assertReceivedOnNext(Arrays.asList(21));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testUnsubscribeCancels() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		CompletableFuture<Integer> f = new CompletableFuture<>();
+
+		Subscription subscription = CompletionStageObservable.from(f).subscribe(tester);
+		subscription.unsubscribe();
+
+		assertEquals(true, f.isCancelled());
+		tester.assertReceivedOnNext(Arrays.asList());
+	}
+
+	@Test
+	public void testUnsubscribeOneOfTwo() {
+		TestSubscriber<Integer> tester1 = new TestSubscriber<>();
+		TestSubscriber<Integer> tester2 = new TestSubscriber<>();
+		CompletableFuture<Integer> f = new CompletableFuture<>();
+		Observable<Integer> o = CompletionStageObservable.from(f);
+
+		Subscription subscription1 = o.subscribe(tester1);
+		Subscription subscription2 = o.subscribe(tester2);
+		subscription1.unsubscribe();
+		assertEquals(false, f.isCancelled());
+
+		f.complete(21);
+		tester1.assertReceivedOnNext(Arrays.asList());
+		tester2.assertReceivedOnNext(Arrays.asList(21));
+		tester2.assertTerminalEvent();
+		tester2.assertNoErrors();
+		subscription2.unsubscribe();
+	}
+
+	@Test
+	public void testUnsubscribeBothCancels() {
+		CompletableFuture<Integer> f = new CompletableFuture<>();
+		Observable<Integer> o = CompletionStageObservable.from(f);
+
+		Subscription subscription1 = o.subscribe(new TestSubscriber<>());
+		Subscription subscription2 = o.subscribe(new TestSubscriber<>());
+		subscription1.unsubscribe();
+		subscription2.unsubscribe();
+
+		assertEquals(true, f.isCancelled());
+	}
+
+	@Test
+	public void testTimeoutOneOfTwo() {
+		TestSubscriber<Integer> tester1 = new TestSubscriber<>();
+		TestSubscriber<Integer> tester2 = new TestSubscriber<>();
+		TestScheduler scheduler = Schedulers.test();
+		CompletableFuture<Integer> f = new CompletableFuture<>();
+		Observable<Integer> o = CompletionStageObservable.from(f, 1000, TimeUnit.MILLISECONDS, scheduler);
+
+		o.subscribe(tester1);
+		scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+		o.subscribe(tester2);
+		scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+		assertEquals(1, tester1.getOnErrorEvents().size());
+		assertEquals(false, f.isCancelled());
+
+		f.complete(21);
+		tester2.assertReceivedOnNext(Arrays.asList(21));
+		tester2.assertNoErrors();
+	}
+
+	@Test
+	public void testBackpressure() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		ControlledPullSubscriber<Integer> puller = new ControlledPullSubscriber<Integer>(
+				tester::onNext,
+				tester::onError,
+				tester::onCompleted);
+
+		CompletionStageObservable.from(CompletableFuture.completedFuture(21)).subscribe(puller);
+		tester.assertReceivedOnNext(Arrays.asList());
+		puller.requestMore(1);
+
+		tester.assertReceivedOnNext(Arrays.asList(21));
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testManyFutures() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		int count = 100000;
+
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		List<Observable<Integer>> values = new ArrayList<>();
+		for (int i = 0 ; i < count ; i++) {
+			CompletableFuture<Integer> f = new CompletableFuture<>();
+			futures.add(f);
+			values.add(CompletionStageObservable.from(f));
+		}
+		// All are subscribed to before any completes:
+		// blocking would need a thread for each of them
+		Observable.merge(values)
+			.map(v -> (long) v)
+			.reduce(0L, (acc, v) -> acc + v)
+			.subscribe(tester);
+		for (int i = 0 ; i < count ; i++) {
+			int v = i;
+			CompletableFuture<Integer> f = futures.get(i);
+			pool.execute(() -> f.complete(v));
+		}
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+		pool.shutdown();
+
+		tester.assertReceivedOnNext(Arrays.asList((long) count * (count - 1) / 2));
+		tester.assertNoErrors();
+	}
+
+}
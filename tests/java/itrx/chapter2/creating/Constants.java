@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Observable;
+import rx.Observable.Operator;
+import rx.Subscriber;
+import rx.functions.Func1;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * Shared Observables of constant values. The same value, or the same
+ * small array of values, usually returns the same instance.
+ * <p>
+ * Only values of immutable types are shared: boxed primitives, Strings
+ * and enums. Any other value gets a new instance, so that subscribers
+ * receive exactly the object that was given. Shared instances live in
+ * a fixed table, where a new value takes the slot of the value before
+ * it, so values that are used once don't push out the ones in use.
+ * <p>
+ * {@link #flatMap(Func1)} is a flatMap that emits the value of a
+ * {@link ScalarObservable} directly instead of subscribing to it.
+ */
+public final class Constants {
+
+	public static final int MAX_CACHED = 1024;
+	public static final int MAX_ARRAY_LENGTH = 8;
+
+	private static final int BUFFER_SIZE = 128;
+
+	private static final ScalarObservable<Object> NULL = new ScalarObservable<>(null);
+	private static final Object NULL_VALUE = new Object();
+	private static final ScalarObservable<?>[] scalars = new ScalarObservable<?>[MAX_CACHED];
+	private static final ArrayEntry[] arrays = new ArrayEntry[MAX_CACHED];
+
+	private Constants() {
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> ScalarObservable<T> just(T value) {
+		if (value == null) {
+			return (ScalarObservable<T>) NULL;
+		}
+		if (!isImmutable(value)) {
+			return new ScalarObservable<>(value);
+		}
+		// Races only lose a slot update. The instances are immutable.
+		int slot = slot(value.hashCode());
+		ScalarObservable<?> cached = scalars[slot];
+		if (cached == null || !value.equals(cached.get())) {
+			cached = new ScalarObservable<>(value);
+			scalars[slot] = cached;
+		}
+		return (ScalarObservable<T>) cached;
+	}
+
+	@SafeVarargs
+	@SuppressWarnings({"unchecked", "varargs"})
+	public static <T> Observable<T> from(T... values) {
+		if (values.length == 1) {
+			return just(values[0]);
+		}
+		boolean shared = values.length <= MAX_ARRAY_LENGTH && allImmutable(values);
+		int slot = 0;
+		if (shared) {
+			// A hit doesn't allocate
+			slot = slot(Arrays.hashCode(values));
+			ArrayEntry cached = arrays[slot];
+			if (cached != null && Arrays.equals(values, cached.values)) {
+				return (Observable<T>) cached.observable;
+			}
+		}
+		// A copy, so that changes to the array don't reach the shared instance
+		Object[] copy = new Object[values.length];
+		for (int i = 0 ; i < values.length ; i++) {
+			copy[i] = values[i];
+		}
+		Observable<T> observable = Observable.from((List<T>) Collections.unmodifiableList(Arrays.asList(copy)));
+		if (shared) {
+			arrays[slot] = new ArrayEntry(copy, observable);
+		}
+		return observable;
+	}
+
+	private static boolean isImmutable(Object value) {
+		return value instanceof String
+				|| value instanceof Integer
+				|| value instanceof Long
+				|| value instanceof Boolean
+				|| value instanceof Character
+				|| value instanceof Double
+				|| value instanceof Float
+				|| value instanceof Short
+				|| value instanceof Byte
+				|| value instanceof Enum;
+	}
+
+	private static boolean allImmutable(Object[] values) {
+		for (Object v : values) {
+			if (v == null || !isImmutable(v)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int slot(int hash) {
+		return (hash ^ (hash >>> 16)) & (MAX_CACHED - 1);
+	}
+
+	private static final class ArrayEntry {
+		final Object[] values;
+		final Observable<?> observable;
+
+		ArrayEntry(Object[] values, Observable<?> observable) {
+			this.values = values;
+			this.observable = observable;
+		}
+	}
+
+	/**
+	 * Emits only as many values as are requested. The source is requested
+	 * {@value #BUFFER_SIZE} values ahead, and so is every inner Observable.
+	 */
+	public static <T, R> Operator<R, T> flatMap(Func1<? super T, ? extends Observable<? extends R>> mapper) {
+		return child -> {
+			FlatMap<T, R> parent = new FlatMap<>(child, mapper);
+			child.add(parent);
+			child.add(parent.inners);
+			child.setProducer(parent::requestFromChild);
+			return parent;
+		};
+	}
+
+	private static Object wrap(Object value) {
+		return value == null ? NULL_VALUE : value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <R> R unwrap(Object o) {
+		return o == NULL_VALUE ? null : (R) o;
+	}
+
+	private static final class FlatMap<T, R> extends Subscriber<T> {
+		final Subscriber<? super R> child;
+		final Func1<? super T, ? extends Observable<? extends R>> mapper;
+		final CompositeSubscription inners = new CompositeSubscription();
+		final Queue<Object> scalars = new ConcurrentLinkedQueue<>();
+		final Queue<Inner<R>> active = new ConcurrentLinkedQueue<>();
+		final AtomicLong requested = new AtomicLong();
+		final AtomicInteger wip = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		volatile boolean done;
+		boolean terminated;
+
+		FlatMap(Subscriber<? super R> child, Func1<? super T, ? extends Observable<? extends R>> mapper) {
+			this.child = child;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public void onStart() {
+			request(BUFFER_SIZE);
+		}
+
+		@Override
+		public void onNext(T t) {
+			Observable<? extends R> inner;
+			try {
+				inner = mapper.call(t);
+			} catch (Throwable e) {
+				onError(e);
+				return;
+			}
+			if (inner instanceof ScalarObservable) {
+				scalars.offer(wrap(((ScalarObservable<? extends R>) inner).get()));
+				drain();
+				return;
+			}
+			Inner<R> innerSubscriber = new Inner<>(this);
+			active.offer(innerSubscriber);
+			inners.add(innerSubscriber);
+			inner.unsafeSubscribe(innerSubscriber);
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			error.compareAndSet(null, e);
+			done = true;
+			drain();
+		}
+
+		@Override
+		public void onCompleted() {
+			done = true;
+			drain();
+		}
+
+		void requestFromChild(long n) {
+			if (n <= 0) {
+				return;
+			}
+			long r;
+			long u;
+			do {
+				r = requested.get();
+				u = r + n;
+				if (u < 0) {
+					u = Long.MAX_VALUE;
+				}
+			} while (!requested.compareAndSet(r, u));
+			drain();
+		}
+
+		void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			for (;;) {
+				if (terminated) {
+					return;
+				}
+				// Read before checking that everything has been emitted
+				boolean d = done;
+				long r = requested.get();
+				long emitted = 0;
+				long consumed = 0;
+
+				Object o;
+				while (emitted != r && (o = scalars.poll()) != null) {
+					child.onNext(unwrap(o));
+					emitted++;
+					consumed++;
+				}
+				for (Inner<R> inner : active) {
+					boolean innerDone = inner.done;
+					long innerEmitted = 0;
+					while (emitted != r && (o = inner.queue.poll()) != null) {
+						child.onNext(unwrap(o));
+						emitted++;
+						innerEmitted++;
+					}
+					if (innerEmitted != 0) {
+						inner.requestMore(innerEmitted);
+					}
+					if (innerDone && inner.queue.isEmpty()) {
+						active.remove(inner);
+						inners.remove(inner);
+						consumed++;
+					}
+				}
+
+				if (emitted != 0 && r != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+				if (consumed != 0) {
+					request(consumed);
+				}
+
+				Throwable e = error.get();
+				if (e != null) {
+					terminated = true;
+					unsubscribe();
+					child.onError(e);
+					return;
+				}
+				if (d && scalars.isEmpty() && active.isEmpty()) {
+					terminated = true;
+					child.onCompleted();
+					return;
+				}
+
+				if (emitted == 0 && consumed == 0) {
+					missed = wip.addAndGet(-missed);
+					if (missed == 0) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	private static final class Inner<R> extends Subscriber<R> {
+		final FlatMap<?, R> parent;
+		final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+		volatile boolean done;
+
+		Inner(FlatMap<?, R> parent) {
+			this.parent = parent;
+		}
+
+		@Override
+		public void onStart() {
+			request(BUFFER_SIZE);
+		}
+
+		@Override
+		public void onNext(R r) {
+			queue.offer(wrap(r));
+			parent.drain();
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			parent.onError(e);
+		}
+
+		@Override
+		public void onCompleted() {
+			done = true;
+			parent.drain();
+		}
+
+		void requestMore(long n) {
+			request(n);
+		}
+	}
+}
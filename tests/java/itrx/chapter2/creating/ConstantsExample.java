@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import itrx.chapter4.backpressure.ControlledPullSubscriber;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+public class ConstantsExample {
+
+	public void exampleJust() {
+		Observable<String> values = Constants.just("one");
+		values.subscribe(
+		    v -> System.out.println("Received: " + v),
+		    e -> System.out.println("Error: " + e),
+		    () -> System.out.println("Completed")
+		);
+		System.out.println(values == Constants.just("one"));
+
+		// Received: one
+		// Completed
+		// true
+	}
+
+	public void exampleFlatMap() {
+		Observable.range(1, 3)
+			.lift(Constants.flatMap(i -> i % 2 == 0 ? Constants.just(i * 10) : Observable.range(0, i)))
+			.subscribe(System.out::println);
+
+		// 0
+		// 20
+		// 0
+		// 1
+		// 2
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testInterned() {
+		assertSame(Constants.just("one"), Constants.just("one"));
+		assertSame(Constants.just(null), Constants.just(null));
+		assertSame(Constants.from(1, 2, 3), Constants.from(1, 2, 3));
+		assertSame(Constants.just(1), Constants.from(1));
+		assertNotSame(Constants.from(1, 2, 3), Constants.from(3, 2, 1));
+	}
+
+	@Test
+	public void testImmutable() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		Integer[] values = {4, 5, 6};
+
+		Observable<Integer> o = Constants.from(values);
+		values[0] = 0;
+		o.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(4, 5, 6));
+		assertNotSame(o, Constants.from(values));
+	}
+
+	@Test
+	public void testCacheHitKeepsCopy() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		Integer[] values = {7, 8, 9};
+
+		Observable<Integer> o = Constants.from(7, 8, 9);
+		assertSame(o, Constants.from(values));
+		values[0] = 0;
+		o.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(7, 8, 9));
+	}
+
+	@Test
+	public void testJustBackpressure() {
+		TestSubscriber<String> tester = new TestSubscriber<>();
+		ControlledPullSubscriber<String> puller = new ControlledPullSubscriber<String>(
+				tester::onNext,
+				tester::onError,
+				tester::onCompleted);
+
+		Constants.just("one").subscribe(puller);
+		tester.assertReceivedOnNext(Arrays.asList());
+		puller.requestMore(1);
+
+		tester.assertReceivedOnNext(Arrays.asList("one"));
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testFlatMap() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		Observable.range(1, 3)
+			.lift(Constants.flatMap(i -> i % 2 == 0 ? Constants.just(i * 10) : Observable.range(0, i)))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(0, 20, 0, 1, 2));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testFlatMapAsynchronous() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+		TestScheduler scheduler = Schedulers.test();
+
+		Observable.just(100L, 150L)
+			.lift(Constants.<Long, Long>flatMap(i -> i == 150
+				? Constants.just(i)
+				: Observable.interval(i, TimeUnit.MILLISECONDS, scheduler).map(v -> i).take(2)))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(150L));
+		assertEquals(0, tester.getOnCompletedEvents().size());
+		scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+		tester.assertReceivedOnNext(Arrays.asList(150L, 100L, 100L));
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testOnlyImmutableValuesShared() {
+		List<Integer> a = new ArrayList<>(Arrays.asList(1, 2));
+		List<Integer> b = new ArrayList<>(Arrays.asList(1, 2));
+		TestSubscriber<List<Integer>> tester = new TestSubscriber<>();
+
+		Constants.just(a);
+		Constants.just(b).subscribe(tester);
+
+		assertSame(b, tester.getOnNextEvents().get(0));
+		assertNotSame(Constants.just(a), Constants.just(a));
+		assertSame(Constants.just(Thread.State.NEW), Constants.just(Thread.State.NEW));
+	}
+
+	@Test
+	public void testNewValuesReplaceOld() {
+		for (int i = 0 ; i < 10 * Constants.MAX_CACHED ; i++)
+			Constants.just("request-" + i);
+
+		// A constant that is used after the table filled up is still shared
+		assertSame(Constants.just("hot"), Constants.just("hot"));
+	}
+
+	@Test
+	public void testFlatMapBackpressure() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		Observable.range(1, 100000)
+			.lift(Constants.flatMap(i -> i % 3 == 0 ? Observable.range(i, 2) : Constants.just(i)))
+			.observeOn(Schedulers.computation())
+			.subscribe(tester);
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+		tester.assertNoErrors();
+		tester.assertTerminalEvent();
+		assertEquals(100000 + 33333, tester.getOnNextEvents().size());
+	}
+
+	@Test
+	public void testFlatMapRequested() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		ControlledPullSubscriber<Integer> puller = new ControlledPullSubscriber<Integer>(
+				tester::onNext,
+				tester::onError,
+				tester::onCompleted);
+
+		Observable.range(0, 10)
+			.lift(Constants.flatMap(i -> i == 1 ? Observable.range(10, 3) : Constants.just(i)))
+			.subscribe(puller);
+		tester.assertReceivedOnNext(Arrays.asList());
+
+		puller.requestMore(2);
+		assertEquals(2, tester.getOnNextEvents().size());
+		puller.requestMore(20);
+		assertEquals(12, tester.getOnNextEvents().size());
+		tester.assertTerminalEvent();
+	}
+
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+import rx.Observable;
+import rx.Producer;
+import rx.Scheduler;
+import rx.Subscriber;
+
+/**
+ * A range or an interval, fused with the map, filter and take operations
+ * that follow it. The whole chain runs as a single loop over primitive
+ * longs, instead of passing each value through a boxed Subscriber per
+ * operator. Values are only boxed on their way out of the chain.
+ * <p>
+ * A fused range honours backpressure: every request is served in one
+ * tight loop.
+ */
+public final class FusedSource {
+
+	private static final int MAP = 0;
+	private static final int FILTER = 1;
+	private static final int TAKE = 2;
+
+	private final Source source;
+	private final Stage[] stages;
+
+	private FusedSource(Source source, Stage[] stages) {
+		this.source = source;
+		this.stages = stages;
+	}
+
+	public static FusedSource range(long start, long count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("count >= 0 required but it was " + count);
+		}
+		return new FusedSource((child, pipeline) -> child.setProducer(new RangeProducer(child, pipeline, start, start + count)), new Stage[0]);
+	}
+
+	public static FusedSource interval(long period, TimeUnit unit, Scheduler scheduler) {
+		return new FusedSource((child, pipeline) -> {
+			if (pipeline.done) {
+				child.onCompleted();
+				return;
+			}
+			Scheduler.Worker worker = scheduler.createWorker();
+			child.add(worker);
+			long[] tick = { 0 };
+			worker.schedulePeriodically(() -> {
+				if (pipeline.push(tick[0]++)) {
+					child.onNext(pipeline.value);
+				}
+				if (pipeline.done) {
+					child.onCompleted();
+					worker.unsubscribe();
+				}
+			}, period, period, unit);
+		}, new Stage[0]);
+	}
+
+	public FusedSource map(LongUnaryOperator mapper) {
+		return then(new Stage(MAP, mapper, null, 0));
+	}
+
+	public FusedSource filter(LongPredicate predicate) {
+		return then(new Stage(FILTER, null, predicate, 0));
+	}
+
+	public FusedSource take(long count) {
+		return then(new Stage(TAKE, null, null, count));
+	}
+
+	public Observable<Long> toObservable() {
+		return Observable.create(child -> source.subscribe(child, new Pipeline(stages)));
+	}
+
+	private FusedSource then(Stage stage) {
+		Stage[] next = Arrays.copyOf(stages, stages.length + 1);
+		next[stages.length] = stage;
+		return new FusedSource(source, next);
+	}
+
+	private interface Source {
+		void subscribe(Subscriber<? super Long> child, Pipeline pipeline);
+	}
+
+	private static final class Stage {
+		final int kind;
+		final LongUnaryOperator mapper;
+		final LongPredicate predicate;
+		final long count;
+
+		Stage(int kind, LongUnaryOperator mapper, LongPredicate predicate, long count) {
+			this.kind = kind;
+			this.mapper = mapper;
+			this.predicate = predicate;
+			this.count = count;
+		}
+	}
+
+	/**
+	 * The state of the chain for one subscription
+	 */
+	private static final class Pipeline {
+		final Stage[] stages;
+		final long[] remaining;
+		long value;
+		boolean done;
+
+		Pipeline(Stage[] stages) {
+			this.stages = stages;
+			this.remaining = new long[stages.length];
+			for (int i = 0 ; i < stages.length ; i++) {
+				remaining[i] = stages[i].count;
+				if (stages[i].kind == TAKE && stages[i].count <= 0) {
+					done = true;
+				}
+			}
+		}
+
+		/**
+		 * @return true if the value made it through the chain, into {@link #value}
+		 */
+		boolean push(long v) {
+			for (int i = 0 ; i < stages.length ; i++) {
+				Stage stage = stages[i];
+				switch (stage.kind) {
+				case MAP:
+					v = stage.mapper.applyAsLong(v);
+					break;
+				case FILTER:
+					if (!stage.predicate.test(v)) {
+						return false;
+					}
+					break;
+				default:
+					if (--remaining[i] == 0) {
+						// Nothing more will get past this point
+						done = true;
+					}
+				}
+			}
+			value = v;
+			return true;
+		}
+	}
+
+	private static final class RangeProducer extends AtomicLong implements Producer {
+		private static final long serialVersionUID = 1L;
+
+		final Subscriber<? super Long> child;
+		final Pipeline pipeline;
+		final long end;
+		long index;
+
+		RangeProducer(Subscriber<? super Long> child, Pipeline pipeline, long start, long end) {
+			this.child = child;
+			this.pipeline = pipeline;
+			this.index = start;
+			this.end = end;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0 || get() == Long.MAX_VALUE) {
+				return;
+			}
+			if (n == Long.MAX_VALUE && compareAndSet(0, Long.MAX_VALUE)) {
+				emitAll();
+				return;
+			}
+			long r;
+			long u;
+			do {
+				r = get();
+				u = r + n;
+				if (u < 0) {
+					u = Long.MAX_VALUE;
+				}
+			} while (!compareAndSet(r, u));
+			if (r == 0) {
+				emit(u);
+			}
+		}
+
+		private void emitAll() {
+			Pipeline p = pipeline;
+			Subscriber<? super Long> c = child;
+			for (long i = index ; i != end && !p.done ; i++) {
+				if (c.isUnsubscribed()) {
+					return;
+				}
+				if (p.push(i)) {
+					c.onNext(p.value);
+				}
+			}
+			if (!c.isUnsubscribed()) {
+				c.onCompleted();
+			}
+		}
+
+		private void emit(long requested) {
+			Pipeline p = pipeline;
+			Subscriber<? super Long> c = child;
+			long emitted = 0;
+			for (;;) {
+				while (emitted != requested && index != end && !p.done) {
+					if (c.isUnsubscribed()) {
+						return;
+					}
+					if (p.push(index++)) {
+						c.onNext(p.value);
+						emitted++;
+					}
+				}
+				if (index == end || p.done) {
+					if (!c.isUnsubscribed()) {
+						c.onCompleted();
+					}
+					return;
+				}
+				requested = get();
+				if (requested == emitted) {
+					requested = addAndGet(-emitted);
+					if (requested == 0) {
+						return;
+					}
+					emitted = 0;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import itrx.chapter4.backpressure.ControlledPullSubscriber;
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+public class FusedSourceExample {
+
+	public void exampleRange() {
+		FusedSource.range(10, 15)
+			.filter(i -> i % 2 == 0)
+			.map(i -> i * i)
+			.toObservable()
+			.subscribe(System.out::println);
+
+		// 100
+		// 144
+		// 196
+		// 256
+		// 324
+		// 400
+		// 484
+		// 576
+	}
+
+	public void exampleSameAsOperators() {
+		// The same values as
+		// Observable.range(10, 15).filter(i -> i % 2 == 0).map(i -> i * i)
+		// but without boxing or a Subscriber for every step
+		FusedSource.range(10, 15)
+			.filter(i -> i % 2 == 0)
+			.map(i -> i * i)
+			.toObservable()
+			.count()
+			.subscribe(System.out::println);
+
+		// 8
+	}
+
+	public void exampleInterval() throws InterruptedException {
+		Subscription subscription = FusedSource.interval(100, TimeUnit.MILLISECONDS, Schedulers.computation())
+			.map(i -> i * 10)
+			.take(3)
+			.toObservable()
+			.subscribe(
+				System.out::println,
+				System.out::println,
+				() -> System.out.println("Completed"));
+		Thread.sleep(500);
+		subscription.unsubscribe();
+
+		// 0
+		// 10
+		// 20
+		// Completed
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testRange() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		FusedSource.range(10, 15)
+			.filter(i -> i % 2 == 0)
+			.map(i -> i * i)
+			.toObservable()
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(100L,144L,196L,256L,324L,400L,484L,576L));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testSameAsOperators() {
+		TestSubscriber<Long> expected = new TestSubscriber<>();
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		Observable.range(0, 10000)
+			.map(i -> (long) i * 3)
+			.filter(i -> i % 7 != 0)
+			.take(500)
+			.map(i -> i + 1)
+			.subscribe(expected);
+		FusedSource.range(0, 10000)
+			.map(i -> i * 3)
+			.filter(i -> i % 7 != 0)
+			.take(500)
+			.map(i -> i + 1)
+			.toObservable()
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(expected.getOnNextEvents());
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testTakeZero() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		FusedSource.range(0, 10)
+			.take(0)
+			.toObservable()
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList());
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testBackpressure() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+		ControlledPullSubscriber<Long> puller = new ControlledPullSubscriber<Long>(
+				tester::onNext,
+				tester::onError,
+				tester::onCompleted);
+
+		FusedSource.range(0, 10)
+			.filter(i -> i % 2 == 1)
+			.toObservable()
+			.subscribe(puller);
+
+		tester.assertReceivedOnNext(Arrays.asList());
+		puller.requestMore(2);
+		tester.assertReceivedOnNext(Arrays.asList(1L,3L));
+		puller.requestMore(2);
+		tester.assertReceivedOnNext(Arrays.asList(1L,3L,5L,7L));
+		assertEquals(0, tester.getOnCompletedEvents().size());
+		puller.requestMore(2);
+		tester.assertReceivedOnNext(Arrays.asList(1L,3L,5L,7L,9L));
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testSubscribeTwice() {
+		TestSubscriber<Long> tester1 = new TestSubscriber<>();
+		TestSubscriber<Long> tester2 = new TestSubscriber<>();
+
+		Observable<Long> values = FusedSource.range(0, 5)
+			.take(2)
+			.toObservable();
+		values.subscribe(tester1);
+		values.subscribe(tester2);
+
+		tester1.assertReceivedOnNext(Arrays.asList(0L,1L));
+		tester2.assertReceivedOnNext(Arrays.asList(0L,1L));
+	}
+
+	@Test
+	public void testInterval() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+		TestScheduler scheduler = Schedulers.test();
+
+		FusedSource.interval(100, TimeUnit.MILLISECONDS, scheduler)
+			.map(i -> i * 10)
+			.take(3)
+			.toObservable()
+			.subscribe(tester);
+
+		scheduler.advanceTimeBy(250, TimeUnit.MILLISECONDS);
+		tester.assertReceivedOnNext(Arrays.asList(0L,10L));
+		assertEquals(0, tester.getOnCompletedEvents().size());
+		scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+		tester.assertReceivedOnNext(Arrays.asList(0L,10L,20L));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+}
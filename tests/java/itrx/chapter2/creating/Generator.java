@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.Observer;
+import rx.Producer;
+import rx.Subscriber;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func2;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Creates an Observable that generates its values on demand from a state.
+ * Every subscription gets its own state from {@code initialState}. The
+ * step function is called once for every value that the subscriber
+ * requests: it may emit at most one value, or terminate, and it returns
+ * the state for the next step. Nothing is generated ahead of the requests,
+ * so nothing needs to be queued.
+ * <p>
+ * The state is disposed exactly once, after the sequence terminates or
+ * the subscriber unsubscribes.
+ */
+public final class Generator {
+
+	private Generator() {
+	}
+
+	public static <S, T> Observable<T> create(
+			Func0<? extends S> initialState,
+			Func2<? super S, ? super Observer<? super T>, ? extends S> step) {
+		return create(initialState, step, s -> {});
+	}
+
+	public static <S, T> Observable<T> create(
+			Func0<? extends S> initialState,
+			Func2<? super S, ? super Observer<? super T>, ? extends S> step,
+			Action1<? super S> dispose) {
+		return Observable.create(child -> {
+			S state;
+			try {
+				state = initialState.call();
+			} catch (Throwable e) {
+				child.onError(e);
+				return;
+			}
+			StepProducer<S, T> producer = new StepProducer<>(child, state, step, dispose);
+			child.add(Subscriptions.create(producer::drain));
+			child.setProducer(producer);
+		});
+	}
+
+	private static final class StepProducer<S, T> extends AtomicLong implements Producer, Observer<T> {
+		private static final long serialVersionUID = 1L;
+
+		final Subscriber<? super T> child;
+		final Func2<? super S, ? super Observer<? super T>, ? extends S> step;
+		final Action1<? super S> dispose;
+		final AtomicInteger wip = new AtomicInteger();
+
+		// Only touched by the draining thread
+		S state;
+		boolean emitted;
+		boolean done;
+		boolean disposed;
+
+		StepProducer(Subscriber<? super T> child, S state,
+				Func2<? super S, ? super Observer<? super T>, ? extends S> step,
+				Action1<? super S> dispose) {
+			this.child = child;
+			this.state = state;
+			this.step = step;
+			this.dispose = dispose;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				return;
+			}
+			long r;
+			long u;
+			do {
+				r = get();
+				u = r + n;
+				if (u < 0) {
+					u = Long.MAX_VALUE;
+				}
+			} while (!compareAndSet(r, u));
+			drain();
+		}
+
+		void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			for (;;) {
+				long requested = get();
+				long produced = 0;
+				while (produced != requested && !done && !child.isUnsubscribed()) {
+					emitted = false;
+					try {
+						state = step.call(state, this);
+					} catch (Throwable e) {
+						onError(e);
+					}
+					if (emitted) {
+						produced++;
+					}
+				}
+				if (done || child.isUnsubscribed()) {
+					if (!disposed) {
+						disposed = true;
+						dispose.call(state);
+						state = null;
+					}
+					return;
+				}
+				if (produced != 0 && requested != Long.MAX_VALUE) {
+					addAndGet(-produced);
+				}
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+		@Override
+		public void onNext(T t) {
+			if (done) {
+				return;
+			}
+			if (emitted) {
+				onError(new IllegalStateException("onNext called more than once in a step"));
+				return;
+			}
+			emitted = true;
+			child.onNext(t);
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			if (!done) {
+				done = true;
+				child.onError(e);
+			}
+		}
+
+		@Override
+		public void onCompleted() {
+			if (!done) {
+				done = true;
+				child.onCompleted();
+			}
+		}
+	}
+}
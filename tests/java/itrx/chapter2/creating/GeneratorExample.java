@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import itrx.chapter4.backpressure.ControlledPullSubscriber;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+public class GeneratorExample {
+
+	public void exampleFibonacci() {
+		Observable<Long> fibonacci = Generator.create(
+			() -> new long[] {0, 1},
+			(s, o) -> {
+				o.onNext(s[0]);
+				return new long[] {s[1], s[0] + s[1]};
+			});
+
+		fibonacci
+			.take(8)
+			.subscribe(System.out::println);
+
+		// 0
+		// 1
+		// 1
+		// 2
+		// 3
+		// 5
+		// 8
+		// 13
+	}
+
+	public void exampleDispose() {
+		Observable<Integer> values = Generator.<Integer, Integer>create(
+			() -> 0,
+			(s, o) -> {
+				if (s == 3) {
+					o.onCompleted();
+				} else {
+					o.onNext(s);
+				}
+				return s + 1;
+			},
+			s -> System.out.println("Disposed at " + s));
+
+		values.subscribe(
+		    v -> System.out.println("Received: " + v),
+		    e -> System.out.println("Error: " + e),
+		    () -> System.out.println("Completed")
+		);
+
+		// Received: 0
+		// Received: 1
+		// Received: 2
+		// Completed
+		// Disposed at 4
+	}
+
+
+	//
+	// Tests
+	//
+
+	private static Observable<Integer> counter(AtomicInteger steps, List<Integer> disposed) {
+		return Generator.<Integer, Integer>create(
+			() -> 0,
+			(s, o) -> {
+				steps.incrementAndGet();
+				o.onNext(s);
+				return s + 1;
+			},
+			disposed::add);
+	}
+
+	@Test
+	public void testRequestAccounting() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		AtomicInteger steps = new AtomicInteger();
+		List<Integer> disposed = new ArrayList<>();
+		ControlledPullSubscriber<Integer> puller = new ControlledPullSubscriber<Integer>(
+				tester::onNext,
+				tester::onError,
+				tester::onCompleted);
+
+		counter(steps, disposed).subscribe(puller);
+		assertEquals(0, steps.get());
+		puller.requestMore(3);
+		assertEquals(3, steps.get());
+		tester.assertReceivedOnNext(Arrays.asList(0,1,2));
+		puller.requestMore(2);
+		assertEquals(5, steps.get());
+		tester.assertReceivedOnNext(Arrays.asList(0,1,2,3,4));
+
+		puller.unsubscribe();
+		assertEquals(Arrays.asList(5), disposed);
+	}
+
+	@Test
+	public void testComplete() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		List<Integer> disposed = new ArrayList<>();
+
+		Generator.<Integer, Integer>create(
+			() -> 0,
+			(s, o) -> {
+				if (s == 3) {
+					o.onCompleted();
+				} else {
+					o.onNext(s);
+				}
+				return s + 1;
+			},
+			disposed::add)
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(0,1,2));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+		assertEquals(Arrays.asList(4), disposed);
+	}
+
+	@Test
+	public void testTake() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		AtomicInteger steps = new AtomicInteger();
+		List<Integer> disposed = new ArrayList<>();
+
+		counter(steps, disposed)
+			.take(5)
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(0,1,2,3,4));
+		assertEquals(5, steps.get());
+		assertEquals(Arrays.asList(5), disposed);
+	}
+
+	@Test
+	public void testTwoEmissionsInAStep() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		Generator.<Integer, Integer>create(
+			() -> 0,
+			(s, o) -> {
+				o.onNext(s);
+				o.onNext(s);
+				return s;
+			})
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(0));
+		assertEquals(IllegalStateException.class, tester.getOnErrorEvents().get(0).getClass());
+	}
+
+	@Test
+	public void testSlowConsumer() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		TestScheduler scheduler = Schedulers.test();
+		AtomicInteger steps = new AtomicInteger();
+		List<Integer> disposed = new ArrayList<>();
+
+		// An infinite generator only runs as far as observeOn's buffer
+		counter(steps, disposed)
+			.observeOn(scheduler)
+			.take(1000)
+			.subscribe(tester);
+		assertTrue(steps.get() <= 128);
+		scheduler.triggerActions();
+
+		assertEquals(1000, tester.getOnNextEvents().size());
+		assertTrue(steps.get() <= 1000 + 128);
+		assertEquals(1, disposed.size());
+		tester.assertNoErrors();
+	}
+
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Observable;
+import rx.Producer;
+import rx.Subscriber;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Emits the records of a file as read-only slices of a memory-mapped
+ * window, without copying them. A record is either a line, without its
+ * line terminator, or a frame of fixed length. The last frame may be
+ * shorter.
+ * <p>
+ * The file is mapped one window at a time and records are only read as
+ * far as the subscriber has requested. The file is closed when the
+ * subscriber unsubscribes or the file ends. The JVM unmaps a window once
+ * neither the source nor any of the emitted slices refer to it.
+ */
+public final class MappedFileObservable {
+
+	public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private MappedFileObservable() {
+	}
+
+	public static Observable<ByteBuffer> lines(Path file) {
+		return lines(file, DEFAULT_WINDOW_SIZE);
+	}
+
+	public static Observable<ByteBuffer> lines(Path file, int windowSize) {
+		return create(file, windowSize, 0);
+	}
+
+	public static Observable<ByteBuffer> frames(Path file, int frameLength) {
+		return frames(file, frameLength, DEFAULT_WINDOW_SIZE);
+	}
+
+	public static Observable<ByteBuffer> frames(Path file, int frameLength, int windowSize) {
+		if (frameLength <= 0) {
+			throw new IllegalArgumentException("frameLength > 0 required but it was " + frameLength);
+		}
+		return create(file, Math.max(windowSize, frameLength), frameLength);
+	}
+
+	private static Observable<ByteBuffer> create(Path file, int windowSize, int frameLength) {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("windowSize > 0 required but it was " + windowSize);
+		}
+		return Observable.create(child -> {
+			FileChannel channel;
+			long size;
+			try {
+				channel = FileChannel.open(file, StandardOpenOption.READ);
+				size = channel.size();
+			} catch (IOException e) {
+				child.onError(e);
+				return;
+			}
+			Reader reader = new Reader(child, channel, size, windowSize, frameLength);
+			child.add(Subscriptions.create(reader::close));
+			child.setProducer(reader);
+		});
+	}
+
+	private static final class Reader extends AtomicLong implements Producer {
+		private static final long serialVersionUID = 1L;
+
+		final Subscriber<? super ByteBuffer> child;
+		final FileChannel channel;
+		final long size;
+		final int windowSize;
+		final int frameLength;
+
+		// Only touched by the emitting thread
+		MappedByteBuffer window;
+		long windowStart;
+		long position;
+
+		Reader(Subscriber<? super ByteBuffer> child, FileChannel channel, long size, int windowSize, int frameLength) {
+			this.child = child;
+			this.channel = channel;
+			this.size = size;
+			this.windowSize = windowSize;
+			this.frameLength = frameLength;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				return;
+			}
+			long r;
+			long u;
+			do {
+				r = get();
+				u = r + n;
+				if (u < 0) {
+					u = Long.MAX_VALUE;
+				}
+			} while (!compareAndSet(r, u));
+			if (r == 0) {
+				emit(u);
+			}
+		}
+
+		private void emit(long requested) {
+			long emitted = 0;
+			for (;;) {
+				while (emitted != requested) {
+					if (child.isUnsubscribed()) {
+						window = null;
+						return;
+					}
+					ByteBuffer record;
+					try {
+						record = next();
+					} catch (IOException e) {
+						close();
+						if (!child.isUnsubscribed()) {
+							child.onError(e);
+						}
+						return;
+					}
+					if (record == null) {
+						close();
+						child.onCompleted();
+						return;
+					}
+					child.onNext(record);
+					emitted++;
+				}
+				requested = get();
+				if (requested == emitted) {
+					requested = addAndGet(-emitted);
+					if (requested == 0) {
+						return;
+					}
+					emitted = 0;
+				}
+			}
+		}
+
+		/**
+		 * @return The next record, or null at the end of the file
+		 */
+		private ByteBuffer next() throws IOException {
+			if (position >= size) {
+				return null;
+			}
+			if (window == null) {
+				map(position, windowSize);
+			}
+			for (;;) {
+				int offset = (int) (position - windowStart);
+				int limit = window.limit();
+				boolean last = windowStart + limit == size;
+				int end = -1;
+				int next = -1;
+				if (frameLength > 0) {
+					if (limit - offset >= frameLength) {
+						end = next = offset + frameLength;
+					} else if (last) {
+						end = next = limit;
+					}
+				} else {
+					for (int i = offset ; i < limit ; i++) {
+						if (window.get(i) == '\n') {
+							end = i;
+							next = i + 1;
+							break;
+						}
+					}
+					if (end < 0 && last) {
+						end = next = limit;
+					}
+					if (end > offset && window.get(end - 1) == '\r') {
+						end--;
+					}
+				}
+				if (end < 0) {
+					// The record continues past this window
+					if (offset == 0) {
+						map(position, (int) Math.min(2L * limit, Integer.MAX_VALUE));
+					} else {
+						map(position, windowSize);
+					}
+					continue;
+				}
+				position = windowStart + next;
+				ByteBuffer record = window.duplicate();
+				record.limit(end).position(offset);
+				return record.slice().asReadOnlyBuffer();
+			}
+		}
+
+		private void map(long start, int length) throws IOException {
+			window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length, size - start));
+			windowStart = start;
+		}
+
+		void close() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Nothing more will be read either way
+			}
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import itrx.chapter4.backpressure.ControlledPullSubscriber;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+public class MappedFileObservableExample {
+
+	public void exampleLines() throws IOException {
+		Path file = Files.createTempFile("lines", ".log");
+		Files.write(file, "first\nsecond\r\nthird".getBytes(StandardCharsets.UTF_8));
+
+		MappedFileObservable.lines(file)
+			.map(line -> StandardCharsets.UTF_8.decode(line).toString())
+			.subscribe(
+				v -> System.out.println("Received: " + v),
+				e -> System.out.println("Error: " + e),
+				() -> System.out.println("Completed"));
+
+		// Received: first
+		// Received: second
+		// Received: third
+		// Completed
+	}
+
+	public void exampleFrames() throws IOException {
+		Path file = Files.createTempFile("frames", ".bin");
+		Files.write(file, new byte[] {1,2,3,4,5,6,7,8,9,10});
+
+		MappedFileObservable.frames(file, 4)
+			.subscribe(frame -> System.out.println(frame.remaining() + " bytes, starting with " + frame.get(0)));
+
+		// 4 bytes, starting with 1
+		// 4 bytes, starting with 5
+		// 2 bytes, starting with 9
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static Observable<String> decode(Observable<ByteBuffer> records) {
+		return records.map(r -> StandardCharsets.UTF_8.decode(r).toString());
+	}
+
+	@Test
+	public void testLines() throws IOException {
+		TestSubscriber<String> tester = new TestSubscriber<>();
+		Path file = folder.newFile().toPath();
+		Files.write(file, "first\nsecond\r\n\nthird".getBytes(StandardCharsets.UTF_8));
+
+		decode(MappedFileObservable.lines(file)).subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList("first", "second", "", "third"));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		TestSubscriber<ByteBuffer> tester = new TestSubscriber<>();
+		Path file = folder.newFile().toPath();
+
+		MappedFileObservable.lines(file).subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList());
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testLinesAcrossWindows() throws IOException {
+		TestSubscriber<String> tester = new TestSubscriber<>();
+		List<String> expected = new ArrayList<>();
+		StringBuilder content = new StringBuilder();
+		for (int i = 0 ; i < 100 ; i++) {
+			String line = "line " + i;
+			expected.add(line);
+			content.append(line).append('\n');
+		}
+		// Longer than a window
+		expected.add("0123456789abcdefghij");
+		content.append("0123456789abcdefghij");
+		Path file = folder.newFile().toPath();
+		Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+		decode(MappedFileObservable.lines(file, 8)).subscribe(tester);
+
+		tester.assertReceivedOnNext(expected);
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testFrames() throws IOException {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		byte[] content = new byte[100];
+		for (int i = 0 ; i < content.length ; i++)
+			content[i] = (byte) i;
+		Path file = folder.newFile().toPath();
+		Files.write(file, content);
+
+		MappedFileObservable.frames(file, 30, 64)
+			.map(frame -> frame.get(0) * 1000 + frame.remaining())
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(30, 30030, 60030, 90010));
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testBackpressure() throws IOException {
+		TestSubscriber<String> tester = new TestSubscriber<>();
+		ControlledPullSubscriber<ByteBuffer> puller = new ControlledPullSubscriber<ByteBuffer>(
+				r -> tester.onNext(StandardCharsets.UTF_8.decode(r).toString()),
+				tester::onError,
+				tester::onCompleted);
+		Path file = folder.newFile().toPath();
+		Files.write(file, "a\nb\nc\n".getBytes(StandardCharsets.UTF_8));
+
+		MappedFileObservable.lines(file).subscribe(puller);
+
+		tester.assertReceivedOnNext(Arrays.asList());
+		puller.requestMore(2);
+		tester.assertReceivedOnNext(Arrays.asList("a", "b"));
+		assertEquals(0, tester.getOnCompletedEvents().size());
+		puller.requestMore(2);
+		tester.assertReceivedOnNext(Arrays.asList("a", "b", "c"));
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testUnsubscribe() throws IOException {
+		TestSubscriber<String> tester = new TestSubscriber<>();
+		Path file = folder.newFile().toPath();
+		Files.write(file, "a\nb\nc\n".getBytes(StandardCharsets.UTF_8));
+
+		decode(MappedFileObservable.lines(file))
+			.take(2)
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList("a", "b"));
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testMissingFile() {
+		TestSubscriber<ByteBuffer> tester = new TestSubscriber<>();
+
+		MappedFileObservable.lines(folder.getRoot().toPath().resolve("missing")).subscribe(tester);
+
+		assertEquals(1, tester.getOnErrorEvents().size());
+	}
+
+}
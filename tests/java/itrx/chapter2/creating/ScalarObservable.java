@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.creating;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import rx.Observable;
+import rx.Producer;
+import rx.Subscriber;
+
+/**
+ * An Observable of a single, constant value. Operators that recognise it
+ * can take the value with {@link #get()} instead of subscribing.
+ *
+ * @param <T> The type of the value
+ */
+public final class ScalarObservable<T> extends Observable<T> {
+
+	private final T value;
+
+	ScalarObservable(T value) {
+		super(child -> child.setProducer(new ScalarProducer<T>(child, value)));
+		this.value = value;
+	}
+
+	public T get() {
+		return value;
+	}
+
+	private static final class ScalarProducer<T> extends AtomicBoolean implements Producer {
+		private static final long serialVersionUID = 1L;
+
+		final Subscriber<? super T> child;
+		final T value;
+
+		ScalarProducer(Subscriber<? super T> child, T value) {
+			this.child = child;
+			this.value = value;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n > 0 && compareAndSet(false, true)) {
+				if (!child.isUnsubscribed()) {
+					child.onNext(value);
+				}
+				if (!child.isUnsubscribed()) {
+					child.onCompleted();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.inspection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+import itrx.chapter2.reducing.ScalableBloomFilter;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+
+/**
+ * Compares two sequences by blocks. Each side is consumed on its own
+ * scheduler worker, where it is cut into blocks of {@code blockSize}
+ * values and every block gets a 64-bit digest. Only blocks whose digests
+ * differ are compared value by value, to find the first index where the
+ * sequences diverge.
+ * <p>
+ * Blocks with the same digest are taken to be equal, as in a Merkle tree,
+ * so {@code itemHash} must be a real 64-bit hash of the values. A hashCode
+ * would not do: it collides on ordinary values, such as -1L and 0L, or "Aa"
+ * and "BB". There are versions for longs and Strings that supply the hash.
+ * <p>
+ * At most a bounded number of blocks per side are held while waiting for
+ * the other side.
+ */
+public final class BlockSequenceEqual {
+
+	/**
+	 * The result when the sequences are equal
+	 */
+	public static final long EQUAL = -1;
+
+	private static final long SAME_BLOCK = Long.MIN_VALUE;
+
+	private BlockSequenceEqual() {
+	}
+
+	/**
+	 * Compares sequences of longs, with {@link ScalableBloomFilter#hash(long)},
+	 * which never gives two values the same hash.
+	 */
+	public static Observable<Long> firstDifferenceOfLongs(Observable<Long> first, Observable<Long> second, int blockSize) {
+		return firstDifference(first, second, blockSize, v -> ScalableBloomFilter.hash(v), Schedulers.computation());
+	}
+
+	/**
+	 * Compares sequences of Strings, with {@link ScalableBloomFilter#hash(CharSequence)}
+	 */
+	public static Observable<Long> firstDifferenceOfStrings(Observable<String> first, Observable<String> second, int blockSize) {
+		return firstDifference(first, second, blockSize, v -> ScalableBloomFilter.hash(v), Schedulers.computation());
+	}
+
+	public static <T> Observable<Long> firstDifference(Observable<? extends T> first, Observable<? extends T> second,
+			int blockSize, ToLongFunction<? super T> itemHash) {
+		return firstDifference(first, second, blockSize, itemHash, Schedulers.computation());
+	}
+
+	/**
+	 * @param itemHash A 64-bit hash of a value. Blocks whose digests are
+	 * equal are not compared any further, so values must rarely share a hash.
+	 * @return An Observable of one value: the index of the first difference,
+	 * or {@link #EQUAL}. If one sequence is a prefix of the other, the
+	 * first difference is at the length of the shorter one.
+	 */
+	public static <T> Observable<Long> firstDifference(
+			Observable<? extends T> first,
+			Observable<? extends T> second,
+			int blockSize,
+			ToLongFunction<? super T> itemHash,
+			Scheduler scheduler) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize > 0 required but it was " + blockSize);
+		}
+		return Observable.zip(
+				blocks(first, blockSize, itemHash, scheduler),
+				blocks(second, blockSize, itemHash, scheduler),
+				BlockSequenceEqual::compare)
+			.filter(result -> result != SAME_BLOCK)
+			.first();
+	}
+
+	private static <T> Observable<Block> blocks(Observable<? extends T> source, int blockSize,
+			ToLongFunction<? super T> itemHash, Scheduler scheduler) {
+		return source
+			.subscribeOn(scheduler)
+			.lift(child -> new Blocker<T>(child, blockSize, itemHash));
+	}
+
+	private static <T> long digest(List<? extends T> values, ToLongFunction<? super T> itemHash) {
+		long h = values.size();
+		for (T v : values) {
+			h = (h ^ itemHash.applyAsLong(v)) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+		}
+		return h;
+	}
+
+	private static long compare(Block a, Block b) {
+		int sizeA = a.values.size();
+		int sizeB = b.values.size();
+		if (sizeA == 0 && sizeB == 0) {
+			return EQUAL;
+		}
+		if (sizeA == sizeB && a.digest == b.digest) {
+			return SAME_BLOCK;
+		}
+		int common = Math.min(sizeA, sizeB);
+		for (int i = 0 ; i < common ; i++) {
+			if (!Objects.equals(a.values.get(i), b.values.get(i))) {
+				return a.offset + i;
+			}
+		}
+		return sizeA == sizeB ? SAME_BLOCK : a.offset + common;
+	}
+
+	/**
+	 * Cuts the values into digested blocks, on the thread that emits them.
+	 * Requests a block's worth of values for every requested block. When
+	 * the source completes, a partial block is followed by an empty one,
+	 * so that a sequence that is longer than the other doesn't go
+	 * unnoticed.
+	 */
+	private static final class Blocker<T> extends Subscriber<T> {
+		final Subscriber<? super Block> child;
+		final int blockSize;
+		final ToLongFunction<? super T> itemHash;
+		final AtomicLong requested = new AtomicLong();
+		final Queue<Block> tail = new ConcurrentLinkedQueue<>();
+
+		// Only touched by the source
+		List<T> values;
+		long offset;
+
+		// Guarded by this
+		long produced;
+
+		Blocker(Subscriber<? super Block> child, int blockSize, ToLongFunction<? super T> itemHash) {
+			this.child = child;
+			this.blockSize = blockSize;
+			this.itemHash = itemHash;
+			child.add(this);
+			child.setProducer(n -> {
+				if (n > 0) {
+					long r;
+					long u;
+					do {
+						r = requested.get();
+						u = r + n;
+						if (u < 0) {
+							u = Long.MAX_VALUE;
+						}
+					} while (!requested.compareAndSet(r, u));
+					request(n > Long.MAX_VALUE / blockSize ? Long.MAX_VALUE : n * blockSize);
+					drainTail();
+				}
+			});
+		}
+
+		@Override
+		public void onStart() {
+			request(0);
+		}
+
+		@Override
+		public void onNext(T t) {
+			if (values == null) {
+				values = new ArrayList<>(blockSize);
+			}
+			values.add(t);
+			if (values.size() == blockSize) {
+				Block block = block();
+				synchronized (this) {
+					produced++;
+				}
+				child.onNext(block);
+			}
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			child.onError(e);
+		}
+
+		@Override
+		public void onCompleted() {
+			if (values != null) {
+				tail.offer(block());
+			}
+			tail.offer(new Block(offset, Collections.emptyList(), 0));
+			drainTail();
+		}
+
+		private Block block() {
+			Block block = new Block(offset, values, digest(values, itemHash));
+			offset += values.size();
+			values = null;
+			return block;
+		}
+
+		private synchronized void drainTail() {
+			while (!tail.isEmpty() && produced < requested.get()) {
+				Block block = tail.poll();
+				produced++;
+				child.onNext(block);
+				if (block.values.isEmpty()) {
+					child.onCompleted();
+				}
+			}
+		}
+	}
+
+	private static final class Block {
+		final long offset;
+		final List<?> values;
+		final long digest;
+
+		Block(long offset, List<?> values, long digest) {
+			this.offset = offset;
+			this.values = values;
+			this.digest = digest;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.inspection;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+public class BlockSequenceEqualExample {
+
+	public void exampleFirstDifference() {
+		Observable<String> replica1 = Observable.just("put a", "put b", "del a", "put c");
+		Observable<String> replica2 = Observable.just("put a", "put b", "put c", "del a");
+
+		BlockSequenceEqual.firstDifferenceOfStrings(replica1, replica2, 2)
+			.toBlocking()
+			.forEach(System.out::println);
+
+		// 2
+	}
+
+
+	//
+	// Tests
+	//
+
+	private static Observable<Long> log(long count, long changedAt) {
+		return Observable.range(0, (int) count)
+			.map(i -> i == changedAt ? -1L : (long) i);
+	}
+
+	@Test
+	public void testEqual() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		BlockSequenceEqual.firstDifferenceOfLongs(log(1000000, -1), log(1000000, -1), 1000)
+			.subscribe(tester);
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+		tester.assertReceivedOnNext(Arrays.asList(BlockSequenceEqual.EQUAL));
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testDifference() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		BlockSequenceEqual.firstDifferenceOfLongs(log(1000000, -1), log(1000000, 123456), 1000)
+			.subscribe(tester);
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+		tester.assertReceivedOnNext(Arrays.asList(123456L));
+	}
+
+	@Test
+	public void testDifferentLengths() {
+		TestSubscriber<Long> longer = new TestSubscriber<>();
+		TestSubscriber<Long> shorter = new TestSubscriber<>();
+		TestSubscriber<Long> aligned = new TestSubscriber<>();
+
+		BlockSequenceEqual.firstDifferenceOfLongs(log(1050, -1), log(1000, -1), 100).subscribe(longer);
+		BlockSequenceEqual.firstDifferenceOfLongs(log(999, -1), log(1000, -1), 100).subscribe(shorter);
+		BlockSequenceEqual.firstDifferenceOfLongs(log(0, -1), log(100, -1), 100).subscribe(aligned);
+		longer.awaitTerminalEvent(10, TimeUnit.SECONDS);
+		shorter.awaitTerminalEvent(10, TimeUnit.SECONDS);
+		aligned.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+		longer.assertReceivedOnNext(Arrays.asList(1000L));
+		shorter.assertReceivedOnNext(Arrays.asList(999L));
+		aligned.assertReceivedOnNext(Arrays.asList(0L));
+	}
+
+	@Test
+	public void testCollidingHashCodes() {
+		TestSubscriber<Long> longs = new TestSubscriber<>();
+		TestSubscriber<Long> strings = new TestSubscriber<>();
+
+		// Long.hashCode(-1L) == Long.hashCode(0L) and "Aa".hashCode() == "BB".hashCode()
+		BlockSequenceEqual.firstDifferenceOfLongs(Observable.just(0L), Observable.just(-1L), 4).subscribe(longs);
+		BlockSequenceEqual.firstDifferenceOfStrings(Observable.just("x", "Aa"), Observable.just("x", "BB"), 4).subscribe(strings);
+		longs.awaitTerminalEvent(10, TimeUnit.SECONDS);
+		strings.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+		longs.assertReceivedOnNext(Arrays.asList(0L));
+		strings.assertReceivedOnNext(Arrays.asList(1L));
+	}
+
+	@Test
+	public void testItemHash() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		BlockSequenceEqual.firstDifference(log(100000, -1), log(100000, 54321), 1000,
+				v -> v * 0x9E3779B97F4A7C15L, Schedulers.computation())
+			.subscribe(tester);
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+		tester.assertReceivedOnNext(Arrays.asList(54321L));
+	}
+
+	@Test
+	public void testEmpty() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		BlockSequenceEqual.firstDifferenceOfLongs(Observable.<Long>empty(), Observable.<Long>empty(), 10)
+			.subscribe(tester);
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+		tester.assertReceivedOnNext(Arrays.asList(BlockSequenceEqual.EQUAL));
+	}
+
+}
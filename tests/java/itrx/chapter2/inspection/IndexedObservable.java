@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.inspection;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import rx.Observable;
+import rx.Producer;
+import rx.Subscriber;
+
+/**
+ * An Observable over a source with random access, such as a List or a
+ * range. {@link #elementAt(Observable, int)}, {@link #skip(Observable, long)}
+ * and {@link #take(Observable, long)} recognise it and jump straight to
+ * the index, instead of emitting and discarding the values before it.
+ * They return an IndexedObservable again, so that chains of them keep
+ * jumping. For any other Observable, they are the usual operators.
+ * <p>
+ * Values are emitted as they are requested, like {@link Observable#from(Iterable)}.
+ *
+ * @param <T> The type of the values
+ */
+public final class IndexedObservable<T> extends Observable<T> {
+
+	/**
+	 * The capability of an OnSubscribe to get any of its values directly
+	 */
+	public interface RandomAccessOnSubscribe<T> extends OnSubscribe<T> {
+		long size();
+
+		T get(long index);
+	}
+
+	private final RandomAccessOnSubscribe<T> access;
+
+	private IndexedObservable(RandomAccessOnSubscribe<T> access) {
+		super(access);
+		this.access = access;
+	}
+
+	public static <T> IndexedObservable<T> fromList(List<? extends T> list) {
+		return new IndexedObservable<>(new View<T>(i -> list.get((int) i), 0, list.size()));
+	}
+
+	public static IndexedObservable<Integer> fromRange(int start, int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("count >= 0 required but it was " + count);
+		}
+		return new IndexedObservable<>(new View<Integer>(i -> (int) (start + i), 0, count));
+	}
+
+	public static <T> IndexedObservable<T> create(long size, LongFunction<? extends T> get) {
+		return new IndexedObservable<>(new View<T>(get, 0, size));
+	}
+
+	/**
+	 * @return The number of values
+	 */
+	public long size() {
+		return access.size();
+	}
+
+	public static <T> Observable<T> elementAt(Observable<T> source, int index) {
+		if (index < 0) {
+			throw new IndexOutOfBoundsException(index + " is out of bounds");
+		}
+		if (!(source instanceof IndexedObservable)) {
+			return source.elementAt(index);
+		}
+		RandomAccessOnSubscribe<T> access = ((IndexedObservable<T>) source).access;
+		if (index >= access.size()) {
+			return Observable.error(new IndexOutOfBoundsException(index + " is out of bounds"));
+		}
+		return new IndexedObservable<>(new View<T>(access::get, index, 1));
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the count is negative, or if the
+	 * source isn't indexed and the count is larger than {@link Integer#MAX_VALUE}
+	 */
+	public static <T> Observable<T> skip(Observable<T> source, long count) {
+		checkCount(source, count);
+		if (!(source instanceof IndexedObservable)) {
+			return source.skip((int) count);
+		}
+		RandomAccessOnSubscribe<T> access = ((IndexedObservable<T>) source).access;
+		long skipped = Math.min(count, access.size());
+		return new IndexedObservable<>(new View<T>(access::get, skipped, access.size() - skipped));
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the count is negative, or if the
+	 * source isn't indexed and the count is larger than {@link Integer#MAX_VALUE}
+	 */
+	public static <T> Observable<T> take(Observable<T> source, long count) {
+		checkCount(source, count);
+		if (!(source instanceof IndexedObservable)) {
+			return source.take((int) count);
+		}
+		RandomAccessOnSubscribe<T> access = ((IndexedObservable<T>) source).access;
+		return new IndexedObservable<>(new View<T>(access::get, 0, Math.min(count, access.size())));
+	}
+
+	private static void checkCount(Observable<?> source, long count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("count >= 0 required but it was " + count);
+		}
+		// The standard operators only count up to an int
+		if (count > Integer.MAX_VALUE && !(source instanceof IndexedObservable)) {
+			throw new IllegalArgumentException("count <= Integer.MAX_VALUE required for a source that isn't indexed but it was " + count);
+		}
+	}
+
+	/**
+	 * A window of {@code size} values, starting at {@code offset}
+	 */
+	private static final class View<T> implements RandomAccessOnSubscribe<T> {
+		final LongFunction<? extends T> get;
+		final long offset;
+		final long size;
+
+		View(LongFunction<? extends T> get, long offset, long size) {
+			this.get = get;
+			this.offset = offset;
+			this.size = size;
+		}
+
+		@Override
+		public long size() {
+			return size;
+		}
+
+		@Override
+		public T get(long index) {
+			return get.apply(offset + index);
+		}
+
+		@Override
+		public void call(Subscriber<? super T> child) {
+			if (size == 0) {
+				child.onCompleted();
+			} else {
+				child.setProducer(new IndexProducer<>(child, this));
+			}
+		}
+	}
+
+	private static final class IndexProducer<T> extends AtomicLong implements Producer {
+		private static final long serialVersionUID = 1L;
+
+		final Subscriber<? super T> child;
+		final View<T> view;
+		long index;
+
+		IndexProducer(Subscriber<? super T> child, View<T> view) {
+			this.child = child;
+			this.view = view;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				return;
+			}
+			long r;
+			long u;
+			do {
+				r = get();
+				u = r + n;
+				if (u < 0) {
+					u = Long.MAX_VALUE;
+				}
+			} while (!compareAndSet(r, u));
+			if (r != 0) {
+				return;
+			}
+			long requested = u;
+			long emitted = 0;
+			for (;;) {
+				while (emitted != requested && index != view.size) {
+					if (child.isUnsubscribed()) {
+						return;
+					}
+					T value;
+					try {
+						value = view.get(index);
+					} catch (Throwable e) {
+						child.onError(e);
+						return;
+					}
+					index++;
+					child.onNext(value);
+					emitted++;
+				}
+				if (index == view.size) {
+					if (!child.isUnsubscribed()) {
+						child.onCompleted();
+					}
+					return;
+				}
+				requested = get();
+				if (requested == emitted) {
+					requested = addAndGet(-emitted);
+					if (requested == 0) {
+						return;
+					}
+					emitted = 0;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.inspection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import itrx.chapter4.backpressure.ControlledPullSubscriber;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+public class IndexedObservableExample {
+
+	public void exampleElementAt() {
+		AtomicLong reads = new AtomicLong();
+		Observable<Long> values = IndexedObservable.create(1000000, i -> {
+			reads.incrementAndGet();
+			return i * 10;
+		});
+
+		IndexedObservable.elementAt(values, 500000)
+			.subscribe(v -> System.out.println(v + " after " + reads + " reads"));
+
+		// 5000000 after 1 reads
+	}
+
+	public void exampleSkipTake() {
+		Observable<Integer> values = IndexedObservable.fromRange(0, 1000000);
+
+		IndexedObservable.take(IndexedObservable.skip(values, 999997), 2)
+			.subscribe(System.out::println);
+
+		// 999997
+		// 999998
+	}
+
+	public void exampleFallback() {
+		Observable<Integer> values = Observable.range(100, 10);
+
+		IndexedObservable.elementAt(values, 2)
+			.subscribe(System.out::println);
+
+		// 102
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testElementAt() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+		AtomicLong reads = new AtomicLong();
+
+		Observable<Long> values = IndexedObservable.create(1000000, i -> {
+			reads.incrementAndGet();
+			return i * 10;
+		});
+		IndexedObservable.elementAt(values, 500000).subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(5000000L));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+		assertEquals(1, reads.get());
+	}
+
+	@Test
+	public void testElementAtOutOfBounds() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		IndexedObservable.elementAt(IndexedObservable.fromRange(0, 10), 10).subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList());
+		assertEquals(1, tester.getOnErrorEvents().size());
+		assertTrue(tester.getOnErrorEvents().get(0) instanceof IndexOutOfBoundsException);
+	}
+
+	@Test
+	public void testSameAsOperators() {
+		List<String> list = new ArrayList<>();
+		for (int i = 0 ; i < 20 ; i++)
+			list.add("v" + i);
+		Observable<String> indexed = IndexedObservable.fromList(list);
+		Observable<String> plain = Observable.from(list);
+
+		for (int skip : new int[] {0, 1, 7, 20, 25}) {
+			for (int take : new int[] {0, 1, 5, 30}) {
+				TestSubscriber<String> expected = new TestSubscriber<>();
+				TestSubscriber<String> actual = new TestSubscriber<>();
+				plain.skip(skip).take(take).subscribe(expected);
+				IndexedObservable.take(IndexedObservable.skip(indexed, skip), take).subscribe(actual);
+
+				actual.assertReceivedOnNext(expected.getOnNextEvents());
+				actual.assertTerminalEvent();
+				actual.assertNoErrors();
+			}
+		}
+	}
+
+	@Test
+	public void testSkipsAhead() {
+		AtomicLong reads = new AtomicLong();
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		Observable<Long> values = IndexedObservable.create(Long.MAX_VALUE, i -> {
+			reads.incrementAndGet();
+			return i;
+		});
+		Observable<Long> sliced = IndexedObservable.take(IndexedObservable.skip(values, 1L << 40), 3);
+		IndexedObservable.elementAt(sliced, 1).subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList((1L << 40) + 1));
+		tester.assertTerminalEvent();
+		assertEquals(1, reads.get());
+	}
+
+	@Test
+	public void testBackpressure() {
+		List<Integer> received = new ArrayList<>();
+		ControlledPullSubscriber<Integer> puller =
+				new ControlledPullSubscriber<Integer>(received::add);
+
+		IndexedObservable.skip(IndexedObservable.fromRange(0, 100), 50).subscribe(puller);
+
+		assertEquals(Arrays.asList(), received);
+		puller.requestMore(2);
+		assertEquals(Arrays.asList(50, 51), received);
+		puller.requestMore(1);
+		assertEquals(Arrays.asList(50, 51, 52), received);
+	}
+
+	@Test
+	public void testUnsubscribe() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		IndexedObservable.fromRange(0, 1000000)
+			.take(3)
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(0, 1, 2));
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testFallback() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		IndexedObservable.take(IndexedObservable.skip(Observable.range(0, 10), 3), 2).subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(3, 4));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testNegativeCounts() {
+		for (Observable<Integer> source : Arrays.asList(IndexedObservable.fromRange(0, 10), Observable.range(0, 10))) {
+			try {
+				IndexedObservable.skip(source, -1);
+				fail("skip accepted a negative count");
+			} catch (IllegalArgumentException e) {
+			}
+			try {
+				IndexedObservable.take(source, -1);
+				fail("take accepted a negative count");
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	public void testLargeCounts() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		IndexedObservable.take(IndexedObservable.fromRange(0, 10), 1L << 40).subscribe(tester);
+		tester.assertReceivedOnNext(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+
+		try {
+			IndexedObservable.skip(Observable.range(0, 10), 1L << 40);
+			fail("skip accepted a count that doesn't fit the standard operator");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			IndexedObservable.take(Observable.range(0, 10), 1L << 40);
+			fail("take accepted a count that doesn't fit the standard operator");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+}
@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.inspection;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+import rx.Observable;
+import rx.Observable.Operator;
+import rx.Producer;
+import rx.Subscriber;
+import rx.functions.Func1;
+
+/**
+ * Versions of all, exists and contains that request from the source in
+ * batches and unsubscribe from it as soon as the answer is known, so that
+ * the source stops producing, even across a subscribeOn. No more batches
+ * are requested after the answer.
+ * <p>
+ * The *Long operators take a source of long[] chunks and examine each
+ * chunk in a plain counted loop, which the JIT can vectorise.
+ * <p>
+ * Apply with {@link Observable#lift(Operator)}.
+ */
+public final class ShortCircuit {
+
+	public static final int DEFAULT_BATCH_SIZE = 128;
+
+	private ShortCircuit() {
+	}
+
+	public static <T> Operator<Boolean, T> all(Func1<? super T, Boolean> predicate) {
+		return all(predicate, DEFAULT_BATCH_SIZE);
+	}
+
+	public static <T> Operator<Boolean, T> all(Func1<? super T, Boolean> predicate, int batchSize) {
+		return decide(v -> !predicate.call(v), false, batchSize);
+	}
+
+	public static <T> Operator<Boolean, T> exists(Func1<? super T, Boolean> predicate) {
+		return exists(predicate, DEFAULT_BATCH_SIZE);
+	}
+
+	public static <T> Operator<Boolean, T> exists(Func1<? super T, Boolean> predicate, int batchSize) {
+		return decide(predicate, true, batchSize);
+	}
+
+	public static <T> Operator<Boolean, T> contains(Object value) {
+		return contains(value, DEFAULT_BATCH_SIZE);
+	}
+
+	public static <T> Operator<Boolean, T> contains(Object value, int batchSize) {
+		return decide(v -> Objects.equals(v, value), true, batchSize);
+	}
+
+	public static Operator<Boolean, long[]> allLong(LongPredicate predicate) {
+		return decide(chunk -> !allMatch(chunk, 0, chunk.length, predicate), false, DEFAULT_BATCH_SIZE);
+	}
+
+	public static Operator<Boolean, long[]> existsLong(LongPredicate predicate) {
+		return decide(chunk -> anyMatch(chunk, 0, chunk.length, predicate), true, DEFAULT_BATCH_SIZE);
+	}
+
+	public static Operator<Boolean, long[]> containsLong(long value) {
+		return decide(chunk -> contains(chunk, 0, chunk.length, value), true, DEFAULT_BATCH_SIZE);
+	}
+
+	public static boolean allMatch(long[] values, int from, int to, LongPredicate predicate) {
+		return !anyMatch(values, from, to, predicate.negate());
+	}
+
+	/**
+	 * Tests a block of values at a time without branching on each result
+	 */
+	public static boolean anyMatch(long[] values, int from, int to, LongPredicate predicate) {
+		int i = from;
+		for ( ; i + 8 <= to ; i += 8) {
+			boolean match = false;
+			for (int j = i ; j < i + 8 ; j++) {
+				match |= predicate.test(values[j]);
+			}
+			if (match) {
+				return true;
+			}
+		}
+		for ( ; i < to ; i++) {
+			if (predicate.test(values[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public static boolean contains(long[] values, int from, int to, long value) {
+		int i = from;
+		for ( ; i + 8 <= to ; i += 8) {
+			boolean match = false;
+			for (int j = i ; j < i + 8 ; j++) {
+				match |= values[j] == value;
+			}
+			if (match) {
+				return true;
+			}
+		}
+		for ( ; i < to ; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param decides Whether a value decides the answer
+	 * @param answer The answer when a value decides it. The opposite
+	 * is the answer when the source completes first.
+	 */
+	private static <T> Operator<Boolean, T> decide(Func1<? super T, Boolean> decides, boolean answer, int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize > 0 required but it was " + batchSize);
+		}
+		return child -> {
+			Answer result = new Answer(child);
+			child.setProducer(result);
+			Subscriber<T> parent = new Subscriber<T>() {
+				final int limit = Math.max(1, batchSize - (batchSize >> 2));
+				int consumed;
+				boolean done;
+
+				@Override
+				public void onStart() {
+					request(batchSize);
+				}
+
+				@Override
+				public void onNext(T t) {
+					if (done) {
+						return;
+					}
+					boolean decided;
+					try {
+						decided = decides.call(t);
+					} catch (Throwable e) {
+						done = true;
+						unsubscribe();
+						child.onError(e);
+						return;
+					}
+					if (decided) {
+						done = true;
+						unsubscribe();
+						result.set(answer);
+					} else if (++consumed == limit) {
+						consumed = 0;
+						request(limit);
+					}
+				}
+
+				@Override
+				public void onError(Throwable e) {
+					if (!done) {
+						done = true;
+						child.onError(e);
+					}
+				}
+
+				@Override
+				public void onCompleted() {
+					if (!done) {
+						done = true;
+						result.set(!answer);
+					}
+				}
+			};
+			child.add(parent);
+			return parent;
+		};
+	}
+
+	/**
+	 * Holds the answer until the subscriber requests it
+	 */
+	private static final class Answer extends AtomicInteger implements Producer {
+		private static final long serialVersionUID = 1L;
+
+		static final int EMPTY = 0;
+		static final int REQUESTED = 1;
+		static final int HAS_VALUE = 2;
+		static final int DONE = 3;
+
+		final Subscriber<? super Boolean> child;
+		boolean value;
+
+		Answer(Subscriber<? super Boolean> child) {
+			this.child = child;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n > 0 && !compareAndSet(EMPTY, REQUESTED) && compareAndSet(HAS_VALUE, DONE)) {
+				emit();
+			}
+		}
+
+		void set(boolean v) {
+			value = v;
+			if (!compareAndSet(EMPTY, HAS_VALUE) && compareAndSet(REQUESTED, DONE)) {
+				emit();
+			}
+		}
+
+		private void emit() {
+			if (!child.isUnsubscribed()) {
+				child.onNext(value);
+				if (!child.isUnsubscribed()) {
+					child.onCompleted();
+				}
+			}
+		}
+	}
+}
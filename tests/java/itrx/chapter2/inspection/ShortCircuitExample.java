@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.inspection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+public class ShortCircuitExample {
+
+	public void exampleExists() {
+		AtomicInteger produced = new AtomicInteger();
+		Observable<Integer> values = Observable.range(0, 1000000)
+			.doOnNext(i -> produced.incrementAndGet());
+
+		values
+		    .lift(ShortCircuit.exists(i -> i > 2))
+		    .subscribe(
+		        v -> System.out.println(v + " after " + produced + " values"),
+		        e -> System.out.println("Error: " + e),
+		        () -> System.out.println("Completed")
+		    );
+
+		// true after 4 values
+		// Completed
+	}
+
+	public void exampleContainsLong() {
+		Observable<long[]> chunks = Observable.just(
+				new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9},
+				new long[] {10, 11, 12});
+
+		chunks
+		    .lift(ShortCircuit.containsLong(11))
+		    .subscribe(v -> System.out.println(v));
+
+		// true
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testAll() {
+		TestSubscriber<Boolean> early = new TestSubscriber<>();
+		TestSubscriber<Boolean> all = new TestSubscriber<>();
+
+		Observable.range(0, 10).lift(ShortCircuit.all(i -> i < 5)).subscribe(early);
+		Observable.range(0, 10).lift(ShortCircuit.all(i -> i < 50)).subscribe(all);
+
+		early.assertReceivedOnNext(Arrays.asList(false));
+		early.assertTerminalEvent();
+		all.assertReceivedOnNext(Arrays.asList(true));
+		all.assertTerminalEvent();
+	}
+
+	@Test
+	public void testExistsAndContains() {
+		TestSubscriber<Boolean> exists = new TestSubscriber<>();
+		TestSubscriber<Boolean> contains = new TestSubscriber<>();
+		TestSubscriber<Boolean> empty = new TestSubscriber<>();
+
+		Observable.range(0, 4).lift(ShortCircuit.exists(i -> i > 2)).subscribe(exists);
+		Observable.range(0, 4).lift(ShortCircuit.contains(7)).subscribe(contains);
+		Observable.<Integer>empty().lift(ShortCircuit.contains(7)).subscribe(empty);
+
+		exists.assertReceivedOnNext(Arrays.asList(true));
+		contains.assertReceivedOnNext(Arrays.asList(false));
+		empty.assertReceivedOnNext(Arrays.asList(false));
+	}
+
+	@Test
+	public void testCancelsUpstream() {
+		TestSubscriber<Boolean> tester = new TestSubscriber<>();
+		AtomicInteger produced = new AtomicInteger();
+
+		Observable.range(0, 1000000)
+			.doOnNext(i -> produced.incrementAndGet())
+			.lift(ShortCircuit.exists(i -> i == 10))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(true));
+		assertEquals(11, produced.get());
+	}
+
+	@Test
+	public void testCancelsAcrossSubscribeOn() throws InterruptedException {
+		TestSubscriber<Boolean> tester = new TestSubscriber<>();
+		AtomicInteger produced = new AtomicInteger();
+
+		Observable.range(0, 1000000)
+			.doOnNext(i -> produced.incrementAndGet())
+			.subscribeOn(Schedulers.computation())
+			.lift(ShortCircuit.exists(i -> i == 10))
+			.subscribe(tester);
+		tester.awaitTerminalEvent(5, TimeUnit.SECONDS);
+		Thread.sleep(50);
+
+		tester.assertReceivedOnNext(Arrays.asList(true));
+		assertEquals(11, produced.get());
+	}
+
+	@Test
+	public void testBatchedRequests() {
+		TestSubscriber<Boolean> tester = new TestSubscriber<>();
+		List<Long> requests = new ArrayList<>();
+		long[] next = { 0 };
+
+		// A source that records the requests it gets
+		Observable.<Long>create(child -> child.setProducer(n -> {
+			requests.add(n);
+			for (long i = 0 ; i < n && !child.isUnsubscribed() ; i++)
+				child.onNext(next[0]++);
+		}))
+			.lift(ShortCircuit.exists(i -> i == 200, 100))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(true));
+		assertEquals(Arrays.asList(100L, 75L, 75L), requests);
+		assertEquals(201, next[0]);
+	}
+
+	@Test
+	public void testLong() {
+		TestSubscriber<Boolean> contains = new TestSubscriber<>();
+		TestSubscriber<Boolean> all = new TestSubscriber<>();
+		TestSubscriber<Boolean> exists = new TestSubscriber<>();
+		Observable<long[]> chunks = Observable.just(
+				new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9},
+				new long[] {10, 11, 12});
+
+		chunks.lift(ShortCircuit.containsLong(11)).subscribe(contains);
+		chunks.lift(ShortCircuit.allLong(v -> v < 12)).subscribe(all);
+		chunks.lift(ShortCircuit.existsLong(v -> v > 100)).subscribe(exists);
+
+		contains.assertReceivedOnNext(Arrays.asList(true));
+		all.assertReceivedOnNext(Arrays.asList(false));
+		exists.assertReceivedOnNext(Arrays.asList(false));
+	}
+
+	@Test
+	public void testArrays() {
+		long[] values = new long[100];
+		for (int i = 0 ; i < values.length ; i++)
+			values[i] = i * 3;
+
+		for (int i = 0 ; i < 300 ; i++)
+			assertEquals(i % 3 == 0, ShortCircuit.contains(values, 0, values.length, i));
+		assertEquals(false, ShortCircuit.contains(values, 0, 50, 150));
+		assertTrue(ShortCircuit.anyMatch(values, 90, 100, v -> v == 297));
+		assertTrue(ShortCircuit.allMatch(values, 0, 100, v -> v % 3 == 0));
+	}
+
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.reducing;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import rx.Observable;
+import rx.Observable.Operator;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+/**
+ * Versions of distinct that do not keep every key forever, so that they
+ * can run on infinite sources. Each gives up some exactness for a bound:
+ * <ul>
+ * <li>{@link #lru} remembers only the most recently seen keys. A key that
+ * was forgotten is emitted again.</li>
+ * <li>{@link #expiring} forgets a key some time after it was emitted, by
+ * the clock of a scheduler. It is then emitted again.</li>
+ * <li>{@link #approximate} remembers a 64-bit hash of every key in a
+ * {@link ScalableBloomFilter}. No key is ever emitted twice, but a few
+ * keys that were never seen are mistaken for seen ones and dropped. The
+ * *ByLong, *ByInt and *ByString versions hash the keys for you.</li>
+ * </ul>
+ * Apply with {@link Observable#lift(Operator)}.
+ */
+public final class BoundedDistinct {
+
+	public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+	private BoundedDistinct() {
+	}
+
+	public static <T> Operator<T, T> lru(int maxKeys) {
+		return lru(v -> v, maxKeys);
+	}
+
+	public static <T, K> Operator<T, T> lru(Func1<? super T, ? extends K> keySelector, int maxKeys) {
+		if (maxKeys <= 0) {
+			throw new IllegalArgumentException("maxKeys > 0 required but it was " + maxKeys);
+		}
+		return distinct(keySelector, () -> new LruKeys<K>(maxKeys));
+	}
+
+	public static <T> Operator<T, T> expiring(long time, TimeUnit unit, Scheduler scheduler) {
+		return expiring(v -> v, time, unit, scheduler);
+	}
+
+	public static <T, K> Operator<T, T> expiring(Func1<? super T, ? extends K> keySelector,
+			long time, TimeUnit unit, Scheduler scheduler) {
+		long maxAge = unit.toMillis(time);
+		return distinct(keySelector, () -> new ExpiringKeys<K>(maxAge, scheduler));
+	}
+
+	public static <T> Operator<T, T> approximateByLong(ToLongFunction<? super T> keySelector, double falsePositiveRate) {
+		return approximate(v -> ScalableBloomFilter.hash(keySelector.applyAsLong(v)),
+				DEFAULT_INITIAL_CAPACITY, falsePositiveRate);
+	}
+
+	public static <T> Operator<T, T> approximateByInt(ToIntFunction<? super T> keySelector, double falsePositiveRate) {
+		return approximate(v -> ScalableBloomFilter.hash(keySelector.applyAsInt(v)),
+				DEFAULT_INITIAL_CAPACITY, falsePositiveRate);
+	}
+
+	public static <T> Operator<T, T> approximateByString(Func1<? super T, ? extends CharSequence> keySelector,
+			double falsePositiveRate) {
+		return approximate(v -> ScalableBloomFilter.hash(keySelector.call(v)),
+				DEFAULT_INITIAL_CAPACITY, falsePositiveRate);
+	}
+
+	/**
+	 * @param keyHash A 64-bit hash of the key of a value. Values whose keys
+	 * have the same hash are taken to have the same key.
+	 */
+	public static <T> Operator<T, T> approximate(ToLongFunction<? super T> keyHash,
+			int initialCapacity, double falsePositiveRate) {
+		if (initialCapacity <= 0) {
+			throw new IllegalArgumentException("initialCapacity > 0 required but it was " + initialCapacity);
+		}
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("0 < falsePositiveRate < 1 required but it was " + falsePositiveRate);
+		}
+		return distinct(v -> v, () -> {
+			ScalableBloomFilter filter = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+			return v -> filter.add(keyHash.applyAsLong(v));
+		});
+	}
+
+	/**
+	 * The keys that one subscription has seen
+	 */
+	private interface Keys<K> {
+		/**
+		 * @return true if the key is new
+		 */
+		boolean add(K key);
+	}
+
+	private static <T, K> Operator<T, T> distinct(Func1<? super T, ? extends K> keySelector, Func0<Keys<K>> keysFactory) {
+		return child -> {
+			Keys<K> keys = keysFactory.call();
+			return new Subscriber<T>(child) {
+				@Override
+				public void onNext(T t) {
+					boolean isNew;
+					try {
+						isNew = keys.add(keySelector.call(t));
+					} catch (Throwable e) {
+						onError(e);
+						return;
+					}
+					if (isNew) {
+						child.onNext(t);
+					} else {
+						request(1);
+					}
+				}
+
+				@Override
+				public void onError(Throwable e) {
+					child.onError(e);
+				}
+
+				@Override
+				public void onCompleted() {
+					child.onCompleted();
+				}
+			};
+		};
+	}
+
+	private static final class LruKeys<K> extends LinkedHashMap<K, Boolean> implements Keys<K> {
+		private static final long serialVersionUID = 1L;
+
+		final int maxKeys;
+
+		LruKeys(int maxKeys) {
+			super(16, 0.75f, true);
+			this.maxKeys = maxKeys;
+		}
+
+		@Override
+		public boolean add(K key) {
+			// Also makes the key the most recent one
+			return put(key, Boolean.TRUE) == null;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, Boolean> eldest) {
+			return size() > maxKeys;
+		}
+	}
+
+	private static final class ExpiringKeys<K> implements Keys<K> {
+		// In the order they were emitted, which is also the order they expire
+		final LinkedHashMap<K, Long> emitted = new LinkedHashMap<>();
+		final long maxAge;
+		final Scheduler scheduler;
+
+		ExpiringKeys(long maxAge, Scheduler scheduler) {
+			this.maxAge = maxAge;
+			this.scheduler = scheduler;
+		}
+
+		@Override
+		public boolean add(K key) {
+			long now = scheduler.now();
+			Iterator<Long> it = emitted.values().iterator();
+			while (it.hasNext() && it.next() <= now - maxAge) {
+				it.remove();
+			}
+			if (emitted.containsKey(key)) {
+				return false;
+			}
+			emitted.put(key, now);
+			return true;
+		}
+	}
+}
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.reducing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+public class BoundedDistinctExample {
+
+	public void exampleLru() {
+		Observable<Integer> values = Observable.just(1, 2, 1, 3, 4, 1, 2);
+
+		values
+		    .lift(BoundedDistinct.lru(2))
+		    .subscribe(
+		        v -> System.out.println(v),
+		        e -> System.out.println("Error: " + e),
+		        () -> System.out.println("Completed")
+		    );
+
+		// 1
+		// 2
+		// 3
+		// 4
+		// 1
+		// 2
+		// Completed
+	}
+
+	public void exampleExpiring() {
+		Observable<String> values = Observable.interval(100, TimeUnit.MILLISECONDS)
+			.take(6)
+			.map(i -> i % 2 == 0 ? "Even" : "Odd");
+
+		values
+		    .lift(BoundedDistinct.expiring(350, TimeUnit.MILLISECONDS, Schedulers.computation()))
+		    .toBlocking()
+		    .forEach(v -> System.out.println(v));
+
+		// Even
+		// Odd
+		// Even
+		// Odd
+	}
+
+	public void exampleApproximate() {
+		Observable<Integer> values = Observable.range(0, 1000000)
+			.map(i -> i % 1000);
+
+		values
+		    .lift(BoundedDistinct.approximateByInt(i -> i, 0.01))
+		    .count()
+		    .subscribe(v -> System.out.println(v));
+
+		// 1000
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testLru() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		Observable.just(1, 2, 1, 3, 4, 1, 2)
+			.lift(BoundedDistinct.lru(2))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(1, 2, 3, 4, 1, 2));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testLruKeepsRecentKeys() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		// 1 keeps being seen, so it is never forgotten
+		Observable.just(1, 2, 1, 3, 1, 4, 1)
+			.lift(BoundedDistinct.lru(2))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(1, 2, 3, 4));
+	}
+
+	@Test
+	public void testLruKey() {
+		TestSubscriber<String> tester = new TestSubscriber<>();
+
+		Observable.just("First", "Second", "Third", "Fourth", "Fifth")
+			.lift(BoundedDistinct.lru(v -> v.charAt(0), 100))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList("First", "Second", "Third"));
+	}
+
+	@Test
+	public void testExpiring() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+		TestScheduler scheduler = Schedulers.test();
+
+		Observable.interval(100, TimeUnit.MILLISECONDS, scheduler)
+			.take(6)
+			.lift(BoundedDistinct.expiring(i -> i % 2, 350, TimeUnit.MILLISECONDS, scheduler))
+			.subscribe(tester);
+
+		scheduler.advanceTimeBy(600, TimeUnit.MILLISECONDS);
+		// 0 is emitted at 100ms and 4 at 500ms, 400ms later
+		tester.assertReceivedOnNext(Arrays.asList(0L, 1L, 4L, 5L));
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testApproximateNeverRepeats() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		Observable.range(0, 100000)
+			.map(i -> i % 5000)
+			.lift(BoundedDistinct.approximateByInt(i -> i, 0.01))
+			.subscribe(tester);
+
+		List<Integer> received = tester.getOnNextEvents();
+		assertEquals(received.size(), new HashSet<>(received).size());
+		assertTrue(received.size() > 5000 * 0.98);
+	}
+
+	@Test
+	public void testApproximateFalsePositiveRate() {
+		int keys = 200000;
+		double rate = 0.01;
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+
+		Observable.range(0, keys)
+			.map(i -> i * 2654435761L)
+			.lift(BoundedDistinct.approximate(ScalableBloomFilter::hash, 1000, rate))
+			.subscribe(tester);
+
+		int dropped = keys - tester.getOnNextEvents().size();
+		assertTrue("Dropped " + dropped, dropped <= keys * rate);
+	}
+
+	@Test
+	public void testApproximateCollidingHashCodes() {
+		TestSubscriber<String> strings = new TestSubscriber<>();
+		TestSubscriber<Long> longs = new TestSubscriber<>();
+
+		// "Aa".hashCode() == "BB".hashCode() and Long.hashCode(0L) == Long.hashCode(-1L)
+		Observable.just("Aa", "BB", "Aa")
+			.lift(BoundedDistinct.approximateByString(v -> v, 1e-9))
+			.subscribe(strings);
+		Observable.just(0L, -1L, 0L)
+			.lift(BoundedDistinct.approximateByLong(v -> v, 1e-9))
+			.subscribe(longs);
+
+		strings.assertReceivedOnNext(Arrays.asList("Aa", "BB"));
+		longs.assertReceivedOnNext(Arrays.asList(0L, -1L));
+	}
+
+	@Test
+	public void testBloomFilterMemory() {
+		ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+		Set<Integer> added = new HashSet<>();
+		for (int i = 0 ; i < 100000 ; i++) {
+			if (filter.add(ScalableBloomFilter.hash(i)))
+				added.add(i);
+		}
+
+		for (int i : added)
+			assertTrue(filter.mightContain(ScalableBloomFilter.hash(i)));
+		// A HashSet of the same keys takes hundreds of bits per key
+		assertTrue(filter.bitSize() / 100000 < 32);
+	}
+
+	@Test
+	public void testBackpressure() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>() {
+			@Override
+			public void onStart() {
+				request(2);
+			}
+		};
+
+		Observable.range(0, 100)
+			.map(i -> i / 10)
+			.lift(BoundedDistinct.lru(4))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(0, 1));
+		tester.requestMore(1);
+		tester.assertReceivedOnNext(Arrays.asList(0, 1, 2));
+	}
+
+}
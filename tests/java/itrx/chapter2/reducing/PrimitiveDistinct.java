@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.reducing;
+
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import rx.Observable;
+import rx.Observable.Operator;
+import rx.Subscriber;
+
+/**
+ * Versions of distinctUntilChanged and distinct for primitive keys. The
+ * keys are never boxed: the previous key is kept in a long field and the
+ * seen keys in an open-addressed int[] set, so no objects are allocated
+ * for each value, except when the set grows.
+ * <p>
+ * Apply with {@link Observable#lift(Operator)}.
+ */
+public final class PrimitiveDistinct {
+
+	private PrimitiveDistinct() {
+	}
+
+	public static <T> Operator<T, T> distinctUntilChangedLong(ToLongFunction<? super T> keySelector) {
+		return child -> new Subscriber<T>(child) {
+			boolean hasPrevious;
+			long previous;
+
+			@Override
+			public void onNext(T t) {
+				long key;
+				try {
+					key = keySelector.applyAsLong(t);
+				} catch (Throwable e) {
+					onError(e);
+					return;
+				}
+				if (hasPrevious && key == previous) {
+					request(1);
+				} else {
+					hasPrevious = true;
+					previous = key;
+					child.onNext(t);
+				}
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				child.onError(e);
+			}
+
+			@Override
+			public void onCompleted() {
+				child.onCompleted();
+			}
+		};
+	}
+
+	public static <T> Operator<T, T> distinctByInt(ToIntFunction<? super T> keySelector) {
+		return child -> new Subscriber<T>(child) {
+			final IntHashSet seen = new IntHashSet();
+
+			@Override
+			public void onNext(T t) {
+				boolean isNew;
+				try {
+					isNew = seen.add(keySelector.applyAsInt(t));
+				} catch (Throwable e) {
+					onError(e);
+					return;
+				}
+				if (isNew) {
+					child.onNext(t);
+				} else {
+					request(1);
+				}
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				child.onError(e);
+			}
+
+			@Override
+			public void onCompleted() {
+				child.onCompleted();
+			}
+		};
+	}
+
+	/**
+	 * A set of ints with linear probing. 0 marks an empty slot, so the
+	 * key 0 is kept in a separate flag.
+	 */
+	static final class IntHashSet {
+		private int[] slots = new int[16];
+		private int size;
+		private boolean hasZero;
+
+		/**
+		 * @return true if the key was not already in the set
+		 */
+		boolean add(int key) {
+			if (key == 0) {
+				if (hasZero) {
+					return false;
+				}
+				hasZero = true;
+				return true;
+			}
+			int mask = slots.length - 1;
+			for (int i = mix(key) & mask ; ; i = (i + 1) & mask) {
+				int slot = slots[i];
+				if (slot == key) {
+					return false;
+				}
+				if (slot == 0) {
+					slots[i] = key;
+					// Keep at most half full, so that probes stay short
+					if (++size * 2 > slots.length) {
+						grow();
+					}
+					return true;
+				}
+			}
+		}
+
+		boolean contains(int key) {
+			if (key == 0) {
+				return hasZero;
+			}
+			int mask = slots.length - 1;
+			for (int i = mix(key) & mask ; ; i = (i + 1) & mask) {
+				int slot = slots[i];
+				if (slot == key) {
+					return true;
+				}
+				if (slot == 0) {
+					return false;
+				}
+			}
+		}
+
+		int size() {
+			return hasZero ? size + 1 : size;
+		}
+
+		private void grow() {
+			int[] old = slots;
+			slots = new int[old.length * 2];
+			int mask = slots.length - 1;
+			for (int key : old) {
+				if (key != 0) {
+					int i = mix(key) & mask;
+					while (slots[i] != 0) {
+						i = (i + 1) & mask;
+					}
+					slots[i] = key;
+				}
+			}
+		}
+
+		/**
+		 * Spreads sequential keys across the table
+		 */
+		private static int mix(int key) {
+			int h = key * 0x9e3779b9;
+			return h ^ (h >>> 16);
+		}
+	}
+}
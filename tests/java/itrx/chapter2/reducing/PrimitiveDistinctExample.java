@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.reducing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+public class PrimitiveDistinctExample {
+
+	public void exampleDistinctUntilChangedLong() {
+		Observable<String> values = Observable.just("First", "Third", "Second", "Fourth", "Fifth");
+
+		values
+		    .lift(PrimitiveDistinct.distinctUntilChangedLong(String::length))
+		    .subscribe(
+		        v -> System.out.println(v),
+		        e -> System.out.println("Error: " + e),
+		        () -> System.out.println("Completed")
+		    );
+
+		// First
+		// Second
+		// Fifth
+		// Completed
+	}
+
+	public void exampleDistinctByInt() {
+		Observable<String> values = Observable.just("First", "Second", "Third", "Fourth", "Fifth");
+
+		values
+		    .lift(PrimitiveDistinct.distinctByInt(v -> v.charAt(0)))
+		    .subscribe(
+		        v -> System.out.println(v),
+		        e -> System.out.println("Error: " + e),
+		        () -> System.out.println("Completed")
+		    );
+
+		// First
+		// Second
+		// Third
+		// Completed
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testDistinctUntilChangedLong() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		Observable.just(1, 1, 2, 3, 2, 0, 0)
+			.lift(PrimitiveDistinct.distinctUntilChangedLong(i -> i))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(1, 2, 3, 2, 0));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testDistinctByInt() {
+		TestSubscriber<String> tester = new TestSubscriber<>();
+
+		Observable.just("First", "Second", "Third", "Fourth", "Fifth")
+			.lift(PrimitiveDistinct.distinctByInt(v -> v.charAt(0)))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList("First", "Second", "Third"));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testSameAsBoxed() {
+		Random random = new Random(42);
+		Integer[] values = new Integer[100000];
+		for (int i = 0 ; i < values.length ; i++)
+			values[i] = random.nextInt(20000) - 10000;
+		TestSubscriber<Integer> expected = new TestSubscriber<>();
+		TestSubscriber<Integer> actual = new TestSubscriber<>();
+
+		Observable.from(values).distinct().subscribe(expected);
+		Observable.from(values).lift(PrimitiveDistinct.distinctByInt(i -> i)).subscribe(actual);
+
+		actual.assertReceivedOnNext(expected.getOnNextEvents());
+	}
+
+	@Test
+	public void testIntHashSet() {
+		PrimitiveDistinct.IntHashSet set = new PrimitiveDistinct.IntHashSet();
+		Set<Integer> reference = new HashSet<>();
+		Random random = new Random(7);
+		for (int i = 0 ; i < 100000 ; i++) {
+			int key = random.nextInt(50000) - 25000;
+			assertEquals(reference.add(key), set.add(key));
+		}
+		assertEquals(reference.size(), set.size());
+		for (int key : reference)
+			assertTrue(set.contains(key));
+		assertEquals(reference.contains(0), set.contains(0));
+	}
+
+	@Test
+	public void testError() {
+		TestSubscriber<String> tester = new TestSubscriber<>();
+
+		Observable.just("1", "2", "x")
+			.lift(PrimitiveDistinct.distinctUntilChangedLong(Long::parseLong))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList("1", "2"));
+		assertEquals(1, tester.getOnErrorEvents().size());
+	}
+
+	@Test
+	public void testBackpressure() {
+		TestSubscriber<Integer> tester = new TestSubscriber<Integer>() {
+			@Override
+			public void onStart() {
+				request(2);
+			}
+		};
+
+		Observable.range(0, 100)
+			.map(i -> i / 10)
+			.lift(PrimitiveDistinct.distinctByInt(i -> i))
+			.subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(0, 1));
+		tester.requestMore(1);
+		tester.assertReceivedOnNext(Arrays.asList(0, 1, 2));
+	}
+
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.reducing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set that may wrongly claim to contain a key, with a chosen probability,
+ * but never forgets a key that it was given. For a 1% error rate it takes
+ * 15 to 30 bits per key, depending on how full the last filter is, whatever
+ * the size of the keys.
+ * <p>
+ * It starts with one Bloom filter for {@code initialCapacity} keys. When
+ * that fills up, a filter twice as large with half the error rate is added,
+ * so that the total error rate stays below {@code falsePositiveRate} however
+ * many keys are added.
+ * <p>
+ * Keys are given as 64-bit hashes, such as those of {@link #hash(long)}
+ * and {@link #hash(CharSequence)}. A 32-bit hashCode would not do: at
+ * 10^8 keys, its collisions alone would exceed most error rates.
+ */
+public final class ScalableBloomFilter {
+
+	private static final double LN2 = Math.log(2);
+
+	private final List<Filter> filters = new ArrayList<>();
+	private Filter current;
+
+	public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+		if (initialCapacity <= 0) {
+			throw new IllegalArgumentException("initialCapacity > 0 required but it was " + initialCapacity);
+		}
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("0 < falsePositiveRate < 1 required but it was " + falsePositiveRate);
+		}
+		// The error rates of the filters add up to at most half of
+		// falsePositiveRate, which leaves room for the sizing formula
+		// underestimating the rate of a full filter
+		addFilter(initialCapacity, falsePositiveRate / 4);
+	}
+
+	/**
+	 * @return true if the key was not already (believed to be) in the set
+	 */
+	public boolean add(long keyHash) {
+		if (mightContain(keyHash)) {
+			return false;
+		}
+		if (current.count == current.capacity) {
+			addFilter(current.capacity * 2, current.falsePositiveRate / 2);
+		}
+		current.add(keyHash);
+		return true;
+	}
+
+	public boolean mightContain(long keyHash) {
+		for (int i = filters.size() - 1 ; i >= 0 ; i--) {
+			if (filters.get(i).mightContain(keyHash)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return The number of bits used by all the filters
+	 */
+	public long bitSize() {
+		long bits = 0;
+		for (Filter f : filters) {
+			bits += f.bitCount;
+		}
+		return bits;
+	}
+
+	/**
+	 * A hash of a long key. Different keys always have different hashes.
+	 */
+	public static long hash(long key) {
+		return mix(key);
+	}
+
+	/**
+	 * A 64-bit hash of the characters (FNV-1a)
+	 */
+	public static long hash(CharSequence key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0 ; i < key.length() ; i++) {
+			h = (h ^ key.charAt(i)) * 0x100000001b3L;
+		}
+		return mix(h ^ key.length());
+	}
+
+	private void addFilter(long capacity, double falsePositiveRate) {
+		current = new Filter(capacity, falsePositiveRate);
+		filters.add(current);
+	}
+
+	/**
+	 * Spreads the bits of h over all 64 (the finaliser of MurmurHash3)
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static final class Filter {
+		final long capacity;
+		final double falsePositiveRate;
+		final long[] bits;
+		final long bitCount;
+		final int hashCount;
+		long count;
+
+		Filter(long capacity, double falsePositiveRate) {
+			this.capacity = capacity;
+			this.falsePositiveRate = falsePositiveRate;
+			long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+			bits = new long[(int) ((m + 63) >>> 6)];
+			bitCount = bits.length * 64L;
+			hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * LN2));
+		}
+
+		void add(long hash) {
+			for (int i = 0 ; i < hashCount ; i++) {
+				long bit = bit(hash, i);
+				bits[(int) (bit >>> 6)] |= 1L << bit;
+			}
+			count++;
+		}
+
+		boolean mightContain(long hash) {
+			for (int i = 0 ; i < hashCount ; i++) {
+				long bit = bit(hash, i);
+				if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * The i-th bit for a key. Each one comes from a differently
+		 * seeded hash, so that the bits of a key are independent.
+		 */
+		private long bit(long hash, int i) {
+			return (mix(hash + (i + 1) * 0x9e3779b97f4a7c15L) >>> 1) % bitCount;
+		}
+	}
+}
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.transforming;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import rx.Observable;
+import rx.Observable.Operator;
+import rx.Subscriber;
+import rx.functions.Func1;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * A concatMap that subscribes to up to {@code maxConcurrency} inner
+ * Observables at once, instead of one after the other. Each inner buffers
+ * up to {@code bufferSize} values in its own queue until it is its turn,
+ * so the output is the same as concatMap's.
+ * <p>
+ * Apply with {@link Observable#lift(Operator)}.
+ *
+ * @param <T> The type of the source values
+ * @param <R> The type of the result values
+ */
+public final class EagerConcatMap<T, R> implements Operator<R, T> {
+
+	private static final Object NULL = new Object();
+
+	private final Func1<? super T, ? extends Observable<? extends R>> mapper;
+	private final int maxConcurrency;
+	private final int bufferSize;
+
+	public static <T, R> EagerConcatMap<T, R> create(
+			Func1<? super T, ? extends Observable<? extends R>> mapper, int maxConcurrency) {
+		return create(mapper, maxConcurrency, 128);
+	}
+
+	public static <T, R> EagerConcatMap<T, R> create(
+			Func1<? super T, ? extends Observable<? extends R>> mapper, int maxConcurrency, int bufferSize) {
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("maxConcurrency > 0 required but it was " + maxConcurrency);
+		}
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("bufferSize > 0 required but it was " + bufferSize);
+		}
+		return new EagerConcatMap<>(mapper, maxConcurrency, bufferSize);
+	}
+
+	private EagerConcatMap(Func1<? super T, ? extends Observable<? extends R>> mapper, int maxConcurrency, int bufferSize) {
+		this.mapper = mapper;
+		this.maxConcurrency = maxConcurrency;
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	public Subscriber<? super T> call(Subscriber<? super R> child) {
+		Parent parent = new Parent(child);
+		child.add(parent);
+		child.add(parent.subscriptions);
+		child.setProducer(n -> {
+			if (n > 0) {
+				long r;
+				long u;
+				do {
+					r = parent.requested.get();
+					u = r + n;
+					if (u < 0) {
+						u = Long.MAX_VALUE;
+					}
+				} while (!parent.requested.compareAndSet(r, u));
+				parent.drain();
+			}
+		});
+		return parent;
+	}
+
+	/**
+	 * A bounded queue for one producer and one consumer
+	 */
+	private static final class SpscQueue {
+		final AtomicReferenceArray<Object> buffer;
+		final int mask;
+		final AtomicLong producerIndex = new AtomicLong();
+		final AtomicLong consumerIndex = new AtomicLong();
+
+		SpscQueue(int capacity) {
+			int size = Integer.highestOneBit(capacity);
+			if (size < capacity) {
+				size <<= 1;
+			}
+			buffer = new AtomicReferenceArray<>(size);
+			mask = size - 1;
+		}
+
+		boolean offer(Object o) {
+			long p = producerIndex.get();
+			int slot = (int) p & mask;
+			if (buffer.get(slot) != null) {
+				return false;
+			}
+			buffer.lazySet(slot, o);
+			producerIndex.lazySet(p + 1);
+			return true;
+		}
+
+		Object peek() {
+			return buffer.get((int) consumerIndex.get() & mask);
+		}
+
+		Object poll() {
+			long c = consumerIndex.get();
+			int slot = (int) c & mask;
+			Object o = buffer.get(slot);
+			if (o != null) {
+				buffer.lazySet(slot, null);
+				consumerIndex.lazySet(c + 1);
+			}
+			return o;
+		}
+	}
+
+	private final class Inner extends Subscriber<R> {
+		final Parent parent;
+		final SpscQueue queue = new SpscQueue(bufferSize);
+		final int limit = Math.max(1, bufferSize >> 1);
+		volatile boolean done;
+
+		// Only touched by the draining thread
+		int consumed;
+
+		Inner(Parent parent) {
+			this.parent = parent;
+		}
+
+		@Override
+		public void onStart() {
+			request(bufferSize);
+		}
+
+		@Override
+		public void onNext(R r) {
+			if (!queue.offer(r == null ? NULL : r)) {
+				onError(new IllegalStateException("More values than requested"));
+				return;
+			}
+			parent.drain();
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			parent.error = e;
+			parent.drain();
+		}
+
+		@Override
+		public void onCompleted() {
+			done = true;
+			parent.drain();
+		}
+
+		void consumed() {
+			if (++consumed == limit) {
+				consumed = 0;
+				request(limit);
+			}
+		}
+	}
+
+	private final class Parent extends Subscriber<T> {
+		final Subscriber<? super R> child;
+		final CompositeSubscription subscriptions = new CompositeSubscription();
+		final AtomicLong requested = new AtomicLong();
+		final AtomicInteger wip = new AtomicInteger();
+		// The subscribed inners, in the order of the source values
+		final Queue<Inner> inners = new ConcurrentLinkedQueue<>();
+
+		volatile boolean done;
+		volatile Throwable error;
+
+		Parent(Subscriber<? super R> child) {
+			this.child = child;
+		}
+
+		@Override
+		public void onStart() {
+			request(maxConcurrency);
+		}
+
+		@Override
+		public void onNext(T t) {
+			Observable<? extends R> source;
+			try {
+				source = mapper.call(t);
+			} catch (Throwable e) {
+				onError(e);
+				return;
+			}
+			Inner inner = new Inner(this);
+			inners.offer(inner);
+			subscriptions.add(inner);
+			source.unsafeSubscribe(inner);
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			error = e;
+			drain();
+		}
+
+		@Override
+		public void onCompleted() {
+			done = true;
+			drain();
+		}
+
+		@SuppressWarnings("unchecked")
+		void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			for (;;) {
+				long r = requested.get();
+				long emitted = 0;
+				for (;;) {
+					if (child.isUnsubscribed()) {
+						return;
+					}
+					Throwable e = error;
+					if (e != null) {
+						unsubscribe();
+						subscriptions.unsubscribe();
+						child.onError(e);
+						return;
+					}
+					// Read before the source has a chance to add another inner
+					boolean d = done;
+					Inner inner = inners.peek();
+					if (inner == null) {
+						if (d) {
+							child.onCompleted();
+							return;
+						}
+						break;
+					}
+					boolean innerDone = inner.done;
+					Object o = inner.queue.peek();
+					if (o == null) {
+						if (innerDone) {
+							inners.poll();
+							subscriptions.remove(inner);
+							request(1);
+							continue;
+						}
+						break;
+					}
+					if (emitted == r) {
+						break;
+					}
+					inner.queue.poll();
+					child.onNext(o == NULL ? null : (R) o);
+					inner.consumed();
+					emitted++;
+				}
+				if (emitted != 0 && r != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.transforming;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import itrx.chapter4.backpressure.ControlledPullSubscriber;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+public class EagerConcatMapExample {
+
+	public void exampleEagerConcatMap() {
+		Observable.just(100, 150)
+		    .lift(EagerConcatMap.<Integer, Integer>create(i ->
+		        Observable.interval(i, TimeUnit.MILLISECONDS)
+		            .map(v -> i)
+		            .take(3),
+		        2))
+		    .subscribe(
+	    		System.out::println,
+	    		System.out::println,
+	    		() -> System.out.println("Completed"));
+
+		// 100
+		// 100
+		// 100
+		// 150
+		// 150
+		// 150
+		// Completed
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testSameAsConcatMap() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		TestScheduler scheduler = Schedulers.test();
+
+		Observable.just(100, 150)
+		    .lift(EagerConcatMap.<Integer, Integer>create(i ->
+		        Observable.interval(i, TimeUnit.MILLISECONDS, scheduler)
+		            .map(v -> i)
+		            .take(3),
+		        2))
+		    .subscribe(tester);
+
+		// concatMap needs 750ms for this
+		scheduler.advanceTimeBy(450, TimeUnit.MILLISECONDS);
+		tester.assertReceivedOnNext(Arrays.asList(100, 100, 100, 150, 150, 150));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testLatency() {
+		TestSubscriber<Integer> concat = new TestSubscriber<>();
+		TestSubscriber<Integer> eager = new TestSubscriber<>();
+		TestScheduler scheduler = Schedulers.test();
+
+		// 8 lookups that take 100ms each
+		Observable<Integer> ids = Observable.range(0, 8);
+		ids.concatMap(i -> Observable.just(i).delay(100, TimeUnit.MILLISECONDS, scheduler))
+			.subscribe(concat);
+		ids.lift(EagerConcatMap.<Integer, Integer>create(i -> Observable.just(i).delay(100, TimeUnit.MILLISECONDS, scheduler), 4))
+			.subscribe(eager);
+
+		scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+		eager.assertReceivedOnNext(Arrays.asList(0,1,2,3,4,5,6,7));
+		eager.assertTerminalEvent();
+		assertEquals(2, concat.getOnNextEvents().size());
+		scheduler.advanceTimeBy(600, TimeUnit.MILLISECONDS);
+		concat.assertReceivedOnNext(eager.getOnNextEvents());
+	}
+
+	@Test
+	public void testOrderWhenLaterInnersFinishFirst() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		TestScheduler scheduler = Schedulers.test();
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 5 ; i > 0 ; i--)
+			for (int j = 0 ; j < 3 ; j++)
+				expected.add(i);
+
+		Observable.range(1, 5)
+			.map(i -> 6 - i)
+			.lift(EagerConcatMap.<Integer, Integer>create(i ->
+				Observable.interval(i * 10, TimeUnit.MILLISECONDS, scheduler)
+					.map(v -> i)
+					.take(3),
+				5))
+			.subscribe(tester);
+		scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+		tester.assertReceivedOnNext(expected);
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testBackpressure() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		ControlledPullSubscriber<Integer> puller = new ControlledPullSubscriber<Integer>(
+				tester::onNext,
+				tester::onError,
+				tester::onCompleted);
+
+		Observable.range(0, 3)
+			.lift(EagerConcatMap.<Integer, Integer>create(i -> Observable.range(i * 100, 10), 2, 4))
+			.subscribe(puller);
+		tester.assertReceivedOnNext(Arrays.asList());
+		puller.requestMore(12);
+		assertEquals(12, tester.getOnNextEvents().size());
+		assertEquals(Integer.valueOf(101), tester.getOnNextEvents().get(11));
+		puller.requestMore(100);
+
+		assertEquals(30, tester.getOnNextEvents().size());
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testError() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		Observable.range(0, 3)
+			.lift(EagerConcatMap.<Integer, Integer>create(i ->
+				i == 1 ? Observable.error(new IllegalStateException()) : Observable.just(i), 2))
+			.subscribe(tester);
+
+		assertEquals(1, tester.getOnErrorEvents().size());
+	}
+
+}
@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.transforming;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import rx.Observable;
+import rx.Observable.Operator;
+import rx.Subscriber;
+import rx.functions.Func1;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * A flatMap that subscribes to each inner Observable on a ForkJoinPool,
+ * so that CPU-bound inner sequences run in parallel. At most
+ * {@code maxConcurrency} inners run at the same time and at most
+ * {@code prefetch} source values are in progress, either waiting, running
+ * or waiting to be emitted.
+ * <p>
+ * The values of an inner are emitted together, once it completes. In the
+ * ordered mode, inners are emitted in the order of the source values; in
+ * the unordered mode, in the order that they complete.
+ * <p>
+ * Apply with {@link Observable#lift(Operator)}.
+ *
+ * @param <T> The type of the source values
+ * @param <R> The type of the result values
+ */
+public final class ParallelFlatMap<T, R> implements Operator<R, T> {
+
+	private final Func1<? super T, ? extends Observable<? extends R>> mapper;
+	private final ForkJoinPool pool;
+	private final int maxConcurrency;
+	private final int prefetch;
+	private final boolean ordered;
+
+	public static <T, R> ParallelFlatMap<T, R> ordered(
+			Func1<? super T, ? extends Observable<? extends R>> mapper, int maxConcurrency, int prefetch) {
+		return new ParallelFlatMap<>(mapper, ForkJoinPool.commonPool(), maxConcurrency, prefetch, true);
+	}
+
+	public static <T, R> ParallelFlatMap<T, R> ordered(
+			Func1<? super T, ? extends Observable<? extends R>> mapper, ForkJoinPool pool, int maxConcurrency, int prefetch) {
+		return new ParallelFlatMap<>(mapper, pool, maxConcurrency, prefetch, true);
+	}
+
+	public static <T, R> ParallelFlatMap<T, R> unordered(
+			Func1<? super T, ? extends Observable<? extends R>> mapper, int maxConcurrency, int prefetch) {
+		return new ParallelFlatMap<>(mapper, ForkJoinPool.commonPool(), maxConcurrency, prefetch, false);
+	}
+
+	public static <T, R> ParallelFlatMap<T, R> unordered(
+			Func1<? super T, ? extends Observable<? extends R>> mapper, ForkJoinPool pool, int maxConcurrency, int prefetch) {
+		return new ParallelFlatMap<>(mapper, pool, maxConcurrency, prefetch, false);
+	}
+
+	private ParallelFlatMap(Func1<? super T, ? extends Observable<? extends R>> mapper, ForkJoinPool pool,
+			int maxConcurrency, int prefetch, boolean ordered) {
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("maxConcurrency > 0 required but it was " + maxConcurrency);
+		}
+		if (prefetch < maxConcurrency) {
+			throw new IllegalArgumentException("prefetch >= maxConcurrency required but it was " + prefetch);
+		}
+		this.mapper = mapper;
+		this.pool = pool;
+		this.maxConcurrency = maxConcurrency;
+		this.prefetch = prefetch;
+		this.ordered = ordered;
+	}
+
+	@Override
+	public Subscriber<? super T> call(Subscriber<? super R> child) {
+		Parent parent = new Parent(child);
+		child.add(parent);
+		child.add(parent.inners);
+		child.setProducer(n -> {
+			if (n > 0) {
+				long r;
+				long u;
+				do {
+					r = parent.requested.get();
+					u = r + n;
+					if (u < 0) {
+						u = Long.MAX_VALUE;
+					}
+				} while (!parent.requested.compareAndSet(r, u));
+				parent.drain();
+			}
+		});
+		return parent;
+	}
+
+	private static final class Result<R> {
+		final List<R> values;
+
+		Result(List<R> values) {
+			this.values = values;
+		}
+	}
+
+	private final class Parent extends Subscriber<T> {
+		final Subscriber<? super R> child;
+		final CompositeSubscription inners = new CompositeSubscription();
+		final AtomicLong requested = new AtomicLong();
+		final AtomicInteger wip = new AtomicInteger();
+		final AtomicInteger running = new AtomicInteger();
+		final Queue<T> waiting = new ConcurrentLinkedQueue<>();
+		// Unordered mode: inners in the order they completed
+		final Queue<Result<R>> completed = new ConcurrentLinkedQueue<>();
+		// Ordered mode: inners by index, modulo prefetch
+		final AtomicReferenceArray<Result<R>> reorder = new AtomicReferenceArray<>(prefetch);
+		final int limit = Math.max(1, prefetch - (prefetch >> 2));
+
+		volatile long received;
+		volatile boolean done;
+		volatile Throwable error;
+
+		// Only touched by the draining thread
+		long launchIndex;
+		long nextIndex;
+		long finished;
+		int consumed;
+		Result<R> current;
+		int currentPosition;
+
+		Parent(Subscriber<? super R> child) {
+			this.child = child;
+		}
+
+		@Override
+		public void onStart() {
+			request(prefetch);
+		}
+
+		@Override
+		public void onNext(T t) {
+			waiting.offer(t);
+			received = received + 1;
+			drain();
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			error = e;
+			done = true;
+			drain();
+		}
+
+		@Override
+		public void onCompleted() {
+			done = true;
+			drain();
+		}
+
+		private void launch(T t, long index) {
+			pool.execute(() -> {
+				Observable<? extends R> inner;
+				try {
+					inner = mapper.call(t);
+				} catch (Throwable e) {
+					innerError(e);
+					return;
+				}
+				List<R> values = new ArrayList<>();
+				Subscriber<R> collector = new Subscriber<R>() {
+					@Override
+					public void onNext(R r) {
+						values.add(r);
+					}
+
+					@Override
+					public void onError(Throwable e) {
+						innerError(e);
+					}
+
+					@Override
+					public void onCompleted() {
+						inners.remove(this);
+						Result<R> result = new Result<>(values);
+						if (ordered) {
+							reorder.set((int) (index % prefetch), result);
+						} else {
+							completed.offer(result);
+						}
+						running.decrementAndGet();
+						drain();
+					}
+				};
+				inners.add(collector);
+				inner.unsafeSubscribe(collector);
+			});
+		}
+
+		private void innerError(Throwable e) {
+			error = e;
+			drain();
+		}
+
+		private Result<R> poll() {
+			if (!ordered) {
+				return completed.poll();
+			}
+			int slot = (int) (nextIndex % prefetch);
+			Result<R> result = reorder.get(slot);
+			if (result != null) {
+				reorder.set(slot, null);
+				nextIndex++;
+			}
+			return result;
+		}
+
+		void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			for (;;) {
+				if (child.isUnsubscribed()) {
+					return;
+				}
+				while (running.get() < maxConcurrency) {
+					T t = waiting.poll();
+					if (t == null) {
+						break;
+					}
+					running.incrementAndGet();
+					launch(t, launchIndex++);
+				}
+
+				long r = requested.get();
+				long emitted = 0;
+				for (;;) {
+					if (child.isUnsubscribed()) {
+						return;
+					}
+					Throwable e = error;
+					if (e != null) {
+						unsubscribe();
+						inners.unsubscribe();
+						child.onError(e);
+						return;
+					}
+					if (current == null) {
+						current = poll();
+						if (current == null) {
+							break;
+						}
+						currentPosition = 0;
+					}
+					if (currentPosition < current.values.size()) {
+						if (emitted == r) {
+							break;
+						}
+						child.onNext(current.values.get(currentPosition++));
+						emitted++;
+					} else {
+						current = null;
+						finished++;
+						if (++consumed == limit) {
+							consumed = 0;
+							request(limit);
+						}
+					}
+				}
+				if (emitted != 0 && r != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+
+				if (done && current == null && finished == received) {
+					child.onCompleted();
+					return;
+				}
+
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.transforming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import itrx.chapter4.backpressure.ControlledPullSubscriber;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+public class ParallelFlatMapExample {
+
+	/**
+	 * Some CPU-bound work
+	 */
+	private static long collatzSteps(long n) {
+		long steps = 0;
+		while (n != 1) {
+			n = n % 2 == 0 ? n / 2 : 3 * n + 1;
+			steps++;
+		}
+		return steps;
+	}
+
+	public void exampleOrdered() {
+		Observable.range(1, 5)
+			.lift(ParallelFlatMap.<Integer, String>ordered(
+				i -> Observable.just(i + ": " + collatzSteps(i * 1000003L)),
+				4, 16))
+			.toBlocking()
+			.forEach(System.out::println);
+
+		// 1: 113
+		// 2: 114
+		// 3: 112
+		// 4: 115
+		// 5: 162
+	}
+
+	public void exampleUnordered() {
+		Observable.range(1, 5)
+			.lift(ParallelFlatMap.<Integer, Integer>unordered(
+				i -> Observable.just(i),
+				4, 16))
+			.toBlocking()
+			.forEach(System.out::println);
+
+		// 1
+		// 2
+		// 3
+		// 4
+		// 5
+		// (in any order)
+	}
+
+
+	//
+	// Tests
+	//
+
+	private static List<Integer> expected(int count) {
+		List<Integer> values = new ArrayList<>();
+		for (int i = 0 ; i < count ; i++) {
+			values.add(i);
+			values.add(-i);
+		}
+		return values;
+	}
+
+	@Test
+	public void testOrdered() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		Observable.range(0, 1000)
+			.lift(ParallelFlatMap.<Integer, Integer>ordered(
+				i -> {
+					collatzSteps(i + 1);
+					return Observable.just(i, -i);
+				},
+				4, 16))
+			.subscribe(tester);
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+		tester.assertReceivedOnNext(expected(1000));
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testUnordered() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		Observable.range(0, 1000)
+			.lift(ParallelFlatMap.<Integer, Integer>unordered(
+				i -> Observable.just(i, -i),
+				4, 16))
+			.subscribe(tester);
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+		List<Integer> received = new ArrayList<>(tester.getOnNextEvents());
+		List<Integer> expected = expected(1000);
+		// The values of an inner stay together
+		for (int i = 0 ; i < received.size() ; i += 2)
+			assertEquals(-received.get(i), (int) received.get(i + 1));
+		Collections.sort(received);
+		Collections.sort(expected);
+		assertEquals(expected, received);
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testMaxConcurrency() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		ForkJoinPool pool = new ForkJoinPool(8);
+
+		Observable.range(0, 50)
+			.lift(ParallelFlatMap.<Integer, Integer>unordered(
+				i -> Observable.create(o -> {
+					int now = running.incrementAndGet();
+					maxRunning.accumulateAndGet(now, Math::max);
+					try {
+						Thread.sleep(5);
+					} catch (InterruptedException e) {
+					}
+					running.decrementAndGet();
+					o.onNext(i);
+					o.onCompleted();
+				}),
+				pool, 3, 10))
+			.subscribe(tester);
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+		pool.shutdown();
+
+		assertEquals(50, tester.getOnNextEvents().size());
+		assertTrue(maxRunning.get() <= 3);
+	}
+
+	@Test
+	public void testBackpressure() throws InterruptedException {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+		ControlledPullSubscriber<Integer> puller = new ControlledPullSubscriber<Integer>(
+				tester::onNext,
+				tester::onError,
+				tester::onCompleted);
+
+		Observable.range(0, 100)
+			.lift(ParallelFlatMap.<Integer, Integer>ordered(
+				i -> Observable.just(i),
+				2, 4))
+			.subscribe(puller);
+		puller.requestMore(3);
+		for (int i = 0 ; i < 100 && tester.getOnNextEvents().size() < 3 ; i++)
+			Thread.sleep(10);
+		Thread.sleep(50);
+
+		assertEquals(3, tester.getOnNextEvents().size());
+		puller.requestMore(200);
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+		assertEquals(100, tester.getOnNextEvents().size());
+	}
+
+	@Test
+	public void testError() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		Observable.range(0, 100)
+			.lift(ParallelFlatMap.<Integer, Integer>ordered(
+				i -> i == 50 ? Observable.error(new IllegalStateException()) : Observable.just(i),
+				4, 16))
+			.subscribe(tester);
+		tester.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+		assertEquals(1, tester.getOnErrorEvents().size());
+	}
+
+}
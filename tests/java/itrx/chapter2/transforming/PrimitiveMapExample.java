@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter2.transforming;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import itrx.chapter1.primitive.IntObservable;
+import itrx.chapter1.primitive.LongObservable;
+import itrx.chapter1.primitive.LongObserver;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+public class PrimitiveMapExample {
+
+	public void exampleMap() {
+		IntObservable values = IntObservable.range(0,4);
+
+		values
+		    .map(i -> i + 3)
+		    .subscribe(i -> System.out.println("Map: " + i));
+
+		// Map: 3
+		// Map: 4
+		// Map: 5
+		// Map: 6
+	}
+
+	public void exampleMap2() {
+		IntObservable values =
+		        IntObservable.from(Observable.just("0", "1", "2", "3"), Integer::parseInt);
+
+		values.boxed().subscribe(
+		    v -> System.out.println("Map: " + v),
+		    e -> System.out.println("Map: Error: " + e),
+		    () -> System.out.println("Map: Completed"));
+
+		// Map: 0
+		// Map: 1
+		// Map: 2
+		// Map: 3
+		// Map: Completed
+	}
+
+	public void exampleMapToLong() {
+		IntObservable.range(0,4)
+		    .mapToLong(i -> i * 1000000000L)
+		    .mapToDouble(l -> l / 3.0)
+		    .subscribe(d -> System.out.println("Map: " + d));
+
+		// Map: 0.0
+		// Map: 3.333333333333333E8
+		// Map: 6.666666666666666E8
+		// Map: 1.0E9
+	}
+
+
+	//
+	// Tests
+	//
+
+	/**
+	 * Collects the values it receives without boxing them
+	 */
+	private static class LongCollector implements LongObserver {
+		long[] values = new long[0];
+		boolean completed;
+
+		@Override
+		public void onNext(long value) {
+			values = Arrays.copyOf(values, values.length + 1);
+			values[values.length - 1] = value;
+		}
+
+		@Override
+		public void onError(Throwable e) {
+		}
+
+		@Override
+		public void onCompleted() {
+			completed = true;
+		}
+	}
+
+	@Test
+	public void testMap() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		IntObservable values = IntObservable.range(0,4);
+
+		values
+		    .map(i -> i + 3)
+		    .boxed()
+		    .subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(3,4,5,6));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testMap2() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		IntObservable values =
+		        IntObservable.from(Observable.just("0", "1", "2", "3"), Integer::parseInt);
+
+		values.boxed().subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(0,1,2,3));
+		tester.assertTerminalEvent();
+		tester.assertNoErrors();
+	}
+
+	@Test
+	public void testMapToLong() {
+		LongCollector collector = new LongCollector();
+
+		IntObservable.range(0,4)
+		    .mapToLong(i -> i * 1000000000L)
+		    .filter(l -> l > 0)
+		    .subscribe(collector);
+
+		assertArrayEquals(new long[] {1000000000L, 2000000000L, 3000000000L}, collector.values);
+		assertEquals(true, collector.completed);
+	}
+
+	@Test
+	public void testMapToObj() {
+		TestSubscriber<String> tester = new TestSubscriber<>();
+
+		LongObservable.range(0, 100)
+		    .mapToObj(l -> "#" + l)
+		    .take(2)
+		    .subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList("#0", "#1"));
+		tester.assertTerminalEvent();
+	}
+
+	@Test
+	public void testError() {
+		TestSubscriber<Integer> tester = new TestSubscriber<>();
+
+		IntObservable.range(0,4)
+		    .map(i -> 6 / (2 - i))
+		    .boxed()
+		    .subscribe(tester);
+
+		tester.assertReceivedOnNext(Arrays.asList(3,6));
+		assertEquals(ArithmeticException.class, tester.getOnErrorEvents().get(0).getClass());
+	}
+
+}
@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter4.scheduling;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A Scheduler for very many delayed actions, such as timeouts. Delayed
+ * actions are hashed into the buckets of a wheel by the tick on which
+ * they are due; a delay longer than one turn of the wheel counts down
+ * the turns it still has to wait. Scheduling and cancelling are O(1),
+ * and each tick only visits one bucket.
+ * <p>
+ * All actions run on the thread that turns the wheel, one at a time, so
+ * they should be short. A delayed action runs on the first tick at or
+ * after its due time.
+ * <p>
+ * A virtual scheduler has no thread. Like the {@link rx.schedulers.TestScheduler},
+ * time only moves and actions only run when {@link #advanceTimeBy(long, TimeUnit)}
+ * is called.
+ */
+public final class HashedWheelScheduler extends Scheduler {
+
+	private static final int PENDING = 0;
+	private static final int DONE = 1;
+
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final boolean virtual;
+	private final Thread thread;
+	private final long startNanos = System.nanoTime();
+	private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+	private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+	private final AtomicLong pending = new AtomicLong();
+	private volatile boolean shutdown;
+
+	// The time that the wheel has reached. Only moved by the wheel.
+	private volatile long nowNanos;
+	private long tick;
+
+	/**
+	 * Creates a scheduler that turns the wheel on its own daemon thread
+	 */
+	public static HashedWheelScheduler create(long tickDuration, TimeUnit unit, int wheelSize) {
+		return new HashedWheelScheduler(unit.toNanos(tickDuration), wheelSize, false);
+	}
+
+	public static HashedWheelScheduler createVirtual(long tickDuration, TimeUnit unit, int wheelSize) {
+		return new HashedWheelScheduler(unit.toNanos(tickDuration), wheelSize, true);
+	}
+
+	private HashedWheelScheduler(long tickNanos, int wheelSize, boolean virtual) {
+		if (tickNanos <= 0) {
+			throw new IllegalArgumentException("tickDuration > 0 required but it was " + tickNanos + "ns");
+		}
+		if (wheelSize <= 0 || wheelSize > 1 << 30) {
+			throw new IllegalArgumentException("wheelSize in (0, 2^30] required but it was " + wheelSize);
+		}
+		int size = Integer.highestOneBit(wheelSize);
+		if (size < wheelSize) {
+			size <<= 1;
+		}
+		this.tickNanos = tickNanos;
+		this.wheel = new Bucket[size];
+		for (int i = 0 ; i < size ; i++) {
+			wheel[i] = new Bucket();
+		}
+		this.mask = size - 1;
+		this.virtual = virtual;
+		if (virtual) {
+			thread = null;
+		} else {
+			thread = new Thread(this::turn, "HashedWheelScheduler");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	@Override
+	public Worker createWorker() {
+		return new WheelWorker();
+	}
+
+	@Override
+	public long now() {
+		return virtual ? TimeUnit.NANOSECONDS.toMillis(nowNanos) : System.currentTimeMillis();
+	}
+
+	/**
+	 * @return The number of actions that are waiting to run
+	 */
+	public long pending() {
+		return pending.get();
+	}
+
+	/**
+	 * Moves virtual time forward, running every action that becomes due
+	 */
+	public synchronized void advanceTimeBy(long delayTime, TimeUnit unit) {
+		if (!virtual) {
+			throw new IllegalStateException("Only a virtual scheduler can be advanced");
+		}
+		advance(nowNanos + unit.toNanos(delayTime));
+	}
+
+	/**
+	 * Runs the actions that are due at the current virtual time
+	 */
+	public void triggerActions() {
+		advanceTimeBy(0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Stops the wheel. Actions that haven't run yet never will.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	private void turn() {
+		while (!shutdown) {
+			advance(System.nanoTime() - startNanos);
+			long sleep = (tick + 1) * tickNanos - (System.nanoTime() - startNanos);
+			if (sleep > 0 && scheduled.isEmpty()) {
+				LockSupport.parkNanos(this, sleep);
+			}
+		}
+	}
+
+	private void advance(long target) {
+		for (;;) {
+			removeCancelled();
+			transferScheduled();
+			long next = (tick + 1) * tickNanos;
+			if (next > target || shutdown) {
+				break;
+			}
+			nowNanos = next;
+			tick++;
+			expire(wheel[(int) (tick & mask)]);
+		}
+		if (target > nowNanos) {
+			nowNanos = target;
+			transferScheduled();
+		}
+	}
+
+	private void removeCancelled() {
+		Timeout t;
+		while ((t = cancelled.poll()) != null) {
+			if (t.bucket != null) {
+				t.bucket.remove(t);
+			}
+		}
+	}
+
+	private void transferScheduled() {
+		Timeout t;
+		while ((t = scheduled.poll()) != null) {
+			if (t.get() != PENDING) {
+				continue;
+			}
+			if (t.deadline <= nowNanos) {
+				run(t);
+				continue;
+			}
+			long due = Math.max((t.deadline + tickNanos - 1) / tickNanos, tick + 1);
+			t.rounds = (due - tick - 1) / wheel.length;
+			wheel[(int) (due & mask)].add(t);
+		}
+	}
+
+	private void expire(Bucket bucket) {
+		Timeout t = bucket.head;
+		while (t != null) {
+			Timeout next = t.next;
+			if (t.rounds <= 0) {
+				bucket.remove(t);
+				run(t);
+			} else {
+				t.rounds--;
+			}
+			t = next;
+		}
+	}
+
+	private void run(Timeout t) {
+		if (t.compareAndSet(PENDING, DONE)) {
+			pending.decrementAndGet();
+			t.worker.tasks.remove(t);
+			try {
+				t.action.call();
+			} catch (Throwable e) {
+				Thread current = Thread.currentThread();
+				current.getUncaughtExceptionHandler().uncaughtException(current, e);
+			}
+		}
+	}
+
+	private final class WheelWorker extends Worker {
+		final CompositeSubscription tasks = new CompositeSubscription();
+
+		@Override
+		public Subscription schedule(Action0 action) {
+			return schedule(action, 0, TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+			if (tasks.isUnsubscribed() || shutdown) {
+				return Subscriptions.unsubscribed();
+			}
+			long base = virtual ? nowNanos : System.nanoTime() - startNanos;
+			long delay = Math.min(Math.max(unit.toNanos(delayTime), 0), Long.MAX_VALUE / 2 - base);
+			Timeout t = new Timeout(this, action, base + delay);
+			pending.incrementAndGet();
+			tasks.add(t);
+			scheduled.offer(t);
+			if (delay == 0 && thread != null) {
+				LockSupport.unpark(thread);
+			}
+			return t;
+		}
+
+		@Override
+		public long now() {
+			return HashedWheelScheduler.this.now();
+		}
+
+		@Override
+		public void unsubscribe() {
+			tasks.unsubscribe();
+		}
+
+		@Override
+		public boolean isUnsubscribed() {
+			return tasks.isUnsubscribed();
+		}
+	}
+
+	private final class Timeout extends AtomicInteger implements Subscription {
+		private static final long serialVersionUID = 1L;
+
+		final WheelWorker worker;
+		final Action0 action;
+		final long deadline;
+
+		// Only touched by the wheel
+		long rounds;
+		Bucket bucket;
+		Timeout prev;
+		Timeout next;
+
+		Timeout(WheelWorker worker, Action0 action, long deadline) {
+			this.worker = worker;
+			this.action = action;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public void unsubscribe() {
+			if (compareAndSet(PENDING, DONE)) {
+				pending.decrementAndGet();
+				worker.tasks.remove(this);
+				cancelled.offer(this);
+			}
+		}
+
+		@Override
+		public boolean isUnsubscribed() {
+			return get() != PENDING;
+		}
+	}
+
+	private static final class Bucket {
+		HashedWheelScheduler.Timeout head;
+		HashedWheelScheduler.Timeout tail;
+
+		void add(HashedWheelScheduler.Timeout t) {
+			t.bucket = this;
+			t.prev = tail;
+			if (tail == null) {
+				head = t;
+			} else {
+				tail.next = t;
+			}
+			tail = t;
+		}
+
+		void remove(HashedWheelScheduler.Timeout t) {
+			if (t.bucket != this) {
+				return;
+			}
+			if (t.prev == null) {
+				head = t.next;
+			} else {
+				t.prev.next = t.next;
+			}
+			if (t.next == null) {
+				tail = t.prev;
+			} else {
+				t.next.prev = t.prev;
+			}
+			t.bucket = null;
+			t.prev = null;
+			t.next = null;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Christos Froussios
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ *******************************************************************************/
+package itrx.chapter4.scheduling;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+
+public class HashedWheelSchedulerExample {
+
+	public void exampleTimer() throws InterruptedException {
+		HashedWheelScheduler scheduler = HashedWheelScheduler.create(10, TimeUnit.MILLISECONDS, 512);
+		Observable.timer(1, TimeUnit.SECONDS, scheduler)
+			.subscribe(
+				i -> System.out.println(i),
+				e -> System.out.println("Error: " + e),
+				() -> System.out.println("Completed"));
+		Thread.sleep(1500);
+		scheduler.shutdown();
+
+		// 0
+		// Completed
+	}
+
+	public void exampleInterval() throws InterruptedException {
+		HashedWheelScheduler scheduler = HashedWheelScheduler.create(10, TimeUnit.MILLISECONDS, 512);
+		Subscription subscription = Observable.interval(100, TimeUnit.MILLISECONDS, scheduler)
+			.subscribe(i -> System.out.println(i));
+		Thread.sleep(350);
+		subscription.unsubscribe();
+		scheduler.shutdown();
+
+		// 0
+		// 1
+		// 2
+	}
+
+
+	//
+	// Tests
+	//
+
+	@Test
+	public void testTimer() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+		HashedWheelScheduler scheduler = HashedWheelScheduler.createVirtual(10, TimeUnit.MILLISECONDS, 8);
+
+		Observable.timer(1, TimeUnit.SECONDS, scheduler)
+			.subscribe(tester);
+
+		// Many turns of the wheel
+		scheduler.advanceTimeBy(990, TimeUnit.MILLISECONDS);
+		tester.assertReceivedOnNext(Arrays.asList());
+		scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+		tester.assertReceivedOnNext(Arrays.asList(0L));
+		tester.assertTerminalEvent();
+		assertEquals(0, scheduler.pending());
+	}
+
+	@Test
+	public void testInterval() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+		HashedWheelScheduler scheduler = HashedWheelScheduler.createVirtual(1, TimeUnit.MILLISECONDS, 64);
+
+		Subscription subscription = Observable.interval(100, TimeUnit.MILLISECONDS, scheduler)
+			.subscribe(tester);
+		scheduler.advanceTimeBy(350, TimeUnit.MILLISECONDS);
+		subscription.unsubscribe();
+		scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+
+		tester.assertReceivedOnNext(Arrays.asList(0L,1L,2L));
+		assertEquals(0, scheduler.pending());
+	}
+
+	@Test
+	public void testRoundsUpToTick() {
+		List<Long> times = new ArrayList<>();
+		HashedWheelScheduler scheduler = HashedWheelScheduler.createVirtual(10, TimeUnit.MILLISECONDS, 4);
+
+		Scheduler.Worker worker = scheduler.createWorker();
+		worker.schedule(() -> times.add(scheduler.now()), 15, TimeUnit.MILLISECONDS);
+		worker.schedule(() -> times.add(scheduler.now()));
+		scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+
+		assertEquals(Arrays.asList(0L, 20L), times);
+	}
+
+	@Test
+	public void testCancel() {
+		List<Integer> executed = new ArrayList<>();
+		HashedWheelScheduler scheduler = HashedWheelScheduler.createVirtual(10, TimeUnit.MILLISECONDS, 16);
+
+		Scheduler.Worker worker = scheduler.createWorker();
+		List<Subscription> subscriptions = new ArrayList<>();
+		for (int i = 0 ; i < 100 ; i++) {
+			int v = i;
+			subscriptions.add(worker.schedule(() -> executed.add(v), i * 10, TimeUnit.MILLISECONDS));
+		}
+		for (int i = 0 ; i < 100 ; i += 2)
+			subscriptions.get(i).unsubscribe();
+		assertEquals(50, scheduler.pending());
+		scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+		worker.unsubscribe();
+		assertEquals(0, scheduler.pending());
+		scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+
+		assertEquals(Arrays.asList(1,3,5,7,9,11,13,15,17,19,21,23,25,27,29,31,33,35,37,39,41,43,45,47,49), executed);
+	}
+
+	@Test
+	public void testManyTimers() {
+		HashedWheelScheduler scheduler = HashedWheelScheduler.createVirtual(1, TimeUnit.MILLISECONDS, 1024);
+		int[] fired = { 0 };
+
+		for (int i = 0 ; i < 500000 ; i++) {
+			Scheduler.Worker worker = scheduler.createWorker();
+			worker.schedule(() -> fired[0]++, 1000 + i % 10000, TimeUnit.MILLISECONDS);
+		}
+		assertEquals(500000, scheduler.pending());
+		scheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+		assertEquals(200050, fired[0]);
+		scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+		assertEquals(500000, fired[0]);
+	}
+
+	@Test
+	public void testRealTime() {
+		TestSubscriber<Long> tester = new TestSubscriber<>();
+		HashedWheelScheduler scheduler = HashedWheelScheduler.create(5, TimeUnit.MILLISECONDS, 64);
+
+		Observable.timer(50, TimeUnit.MILLISECONDS, scheduler)
+			.subscribe(tester);
+		tester.awaitTerminalEvent(2, TimeUnit.SECONDS);
+		scheduler.shutdown();
+
+		tester.assertReceivedOnNext(Arrays.asList(0L));
+		tester.assertTerminalEvent();
+	}
+
+}